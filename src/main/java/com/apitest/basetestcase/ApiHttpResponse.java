@@ -2,39 +2,258 @@ package com.apitest.basetestcase;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.apitest.utils.ContentEncodingUtil;
+import com.apitest.utils.EnvConfig;
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * HTTP 响应封装
+ * Body 以原始字节保存，超过 http.response.spillThresholdBytes 时落盘到临时文件；
+ * 字符串与 JSON 均在首次访问时解码并缓存。
+ * 超过 maxCaptureBytes 的部分不再读取，isTruncated() 为 true。
+ * 压缩响应在读取时流式解压，getWireBytes() 为传输字节数，getBodyLength() 为解压后字节数。
+ * 落盘的临时文件在 close() 或响应对象不可达后删除，进程退出时兜底删除。
  */
-public class ApiHttpResponse {
+public class ApiHttpResponse implements AutoCloseable {
+    private static final int BUFFER_SIZE = 8192;
+    private static final Cleaner CLEANER = Cleaner.create();
+
     private final int statusCode;
-    private final String body;
+    private final byte[] bodyBytes;
+    private final Path bodyFile;
+    private final long bodyLength;
+    private final long wireBytes;
+    private final String contentEncoding;
+    private final boolean truncated;
+    private final Charset charset;
     private final Map<String, List<String>> headers;
     private final Map<String, String> cookies;
+    private final RequestMetrics metrics = new RequestMetrics();
+    private final WireTiming timing = new WireTiming();
+    private final Cleaner.Cleanable cleanable;
+    private volatile boolean closed;
+
+    private volatile String body;
+    private volatile boolean bodyDecoded;
+    private volatile JSONObject json;
+    private volatile boolean jsonParsed;
 
     public ApiHttpResponse(int statusCode, String body,
                            Map<String, List<String>> headers,
                            Map<String, String> cookies) {
-        this.statusCode = statusCode;
+        this(statusCode, body == null ? null : body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, false, headers, cookies);
         this.body = body;
+        this.bodyDecoded = true;
+    }
+
+    public ApiHttpResponse(int statusCode, byte[] bodyBytes, Charset charset, boolean truncated,
+                           Map<String, List<String>> headers,
+                           Map<String, String> cookies) {
+        this(statusCode, bodyBytes, null, bodyBytes == null ? 0 : bodyBytes.length, bodyBytes == null ? 0 : bodyBytes.length,
+                null, charset, truncated, headers, cookies);
+    }
+
+    private ApiHttpResponse(int statusCode, byte[] bodyBytes, Path bodyFile, long bodyLength, long wireBytes,
+                            String contentEncoding, Charset charset, boolean truncated,
+                            Map<String, List<String>> headers, Map<String, String> cookies) {
+        this.statusCode = statusCode;
+        this.bodyBytes = bodyBytes;
+        this.bodyFile = bodyFile;
+        this.bodyLength = bodyLength;
+        this.wireBytes = wireBytes;
+        this.contentEncoding = contentEncoding;
+        this.charset = charset == null ? StandardCharsets.UTF_8 : charset;
+        this.truncated = truncated;
         this.headers = headers == null ? Collections.emptyMap() : headers;
         this.cookies = cookies == null ? Collections.emptyMap() : cookies;
+        this.cleanable = bodyFile == null ? null : CLEANER.register(this, new DeleteFile(bodyFile));
+    }
+
+    /** 删除落盘文件的清理动作，不能持有响应对象本身 */
+    private static final class DeleteFile implements Runnable {
+        private final Path file;
+
+        DeleteFile(Path file) { this.file = file; }
+
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // 删除失败时由 deleteOnExit 兜底
+            }
+        }
+    }
+
+    /**
+     * 从响应流读取 Body：按 contentEncoding 流式解压，最多读取 maxCaptureBytes（解压后，<=0 表示不限制），
+     * 超过落盘阈值时写入临时文件。rawIn 为 null 表示无响应体。
+     */
+    public static ApiHttpResponse capture(int statusCode, InputStream rawIn, String contentEncoding, Charset charset,
+                                          long maxCaptureBytes,
+                                          Map<String, List<String>> headers,
+                                          Map<String, String> cookies) throws IOException {
+        if (rawIn == null) return new ApiHttpResponse(statusCode, null, null, 0, 0, contentEncoding, charset, false, headers, cookies);
+        // Body 以解压后的形式保存，压缩相关的头部不再描述它
+        if (ContentEncodingUtil.decodes(contentEncoding)) headers = withoutEncodingHeaders(headers);
+        CountingInputStream wire = new CountingInputStream(rawIn);
+        InputStream in = ContentEncodingUtil.decode(wire, contentEncoding);
+        long spillThreshold = EnvConfig.getLong("http.response.spillThresholdBytes", 8L * 1024 * 1024);
+        long limit = maxCaptureBytes > 0 ? maxCaptureBytes : Long.MAX_VALUE;
+
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        OutputStream out = mem;
+        Path file = null;
+        long total = 0;
+        boolean truncated = false;
+        byte[] buf = new byte[BUFFER_SIZE];
+        boolean completed = false;
+        try {
+            while (true) {
+                int want = (int) Math.min(buf.length, limit - total);
+                if (want <= 0) {
+                    truncated = in.read() != -1;
+                    break;
+                }
+                int n = in.read(buf, 0, want);
+                if (n < 0) break;
+                if (file == null && total + n > spillThreshold) {
+                    file = Files.createTempFile("api-response-", ".body");
+                    file.toFile().deleteOnExit();
+                    out = Files.newOutputStream(file);
+                    mem.writeTo(out);
+                    mem = null;
+                }
+                out.write(buf, 0, n);
+                total += n;
+            }
+            completed = true;
+        } finally {
+            if (file != null) {
+                try {
+                    out.close();
+                } finally {
+                    if (!completed) Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (file != null) {
+            return new ApiHttpResponse(statusCode, null, file, total, wire.getByteCount(), contentEncoding, charset, truncated, headers, cookies);
+        }
+        return new ApiHttpResponse(statusCode, mem.toByteArray(), null, total, wire.getByteCount(), contentEncoding, charset, truncated, headers, cookies);
+    }
+
+    private static Map<String, List<String>> withoutEncodingHeaders(Map<String, List<String>> headers) {
+        if (headers == null) return null;
+        Map<String, List<String>> copy = new LinkedHashMap<>(headers);
+        copy.keySet().removeIf(k -> k != null && (k.equalsIgnoreCase("Content-Encoding") || k.equalsIgnoreCase("Content-Length")));
+        return copy;
     }
 
     public int getStatusCode() { return statusCode; }
-    public String getBody() { return body; }
     public Map<String, List<String>> getHeaders() { return headers; }
     public Map<String, String> getCookies() { return cookies; }
+    public RequestMetrics getMetrics() { return metrics; }
+    /** DNS、建连、TLS、写出、首字节、下载各阶段耗时 */
+    public WireTiming getTiming() { return timing; }
+
+    /** 已读取的 Body 字节数（解压后；截断时不含未读取部分） */
+    public long getBodyLength() { return bodyLength; }
+    /** 实际传输的 Body 字节数（压缩时为压缩后大小） */
+    public long getWireBytes() { return wireBytes; }
+    public String getContentEncoding() { return contentEncoding; }
+    public boolean isTruncated() { return truncated; }
+    public boolean isSpilledToFile() { return bodyFile != null; }
+    public Path getBodyFile() { return bodyFile; }
+    public Charset getCharset() { return charset; }
+
+    public String getBody() {
+        if (!bodyDecoded) {
+            synchronized (this) {
+                if (!bodyDecoded) {
+                    byte[] bytes = getBodyBytes();
+                    body = bytes == null ? null : new String(bytes, charset);
+                    bodyDecoded = true;
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * 原始 Body 字节；落盘时每次调用都会重新读取整个临时文件，不做缓存。
+     * 大响应请使用 openBodyStream()，或使用已缓存的 getBody()。
+     */
+    public byte[] getBodyBytes() {
+        if (bodyFile == null) return bodyBytes;
+        ensureOpen();
+        try {
+            return Files.readAllBytes(bodyFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 以流方式读取 Body，适用于大响应，无需整体解码为字符串
+     */
+    public InputStream openBodyStream() throws IOException {
+        if (bodyFile != null) {
+            ensureOpen();
+            return Files.newInputStream(bodyFile);
+        }
+        return new ByteArrayInputStream(bodyBytes == null ? new byte[0] : bodyBytes);
+    }
+
+    /**
+     * 删除落盘的临时文件；内存中的响应无需关闭。已解码缓存的 getBody()/getBodyAsJson() 关闭后仍可用。
+     */
+    @Override
+    public void close() {
+        if (cleanable == null || closed) return;
+        closed = true;
+        cleanable.clean();
+    }
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("响应已关闭，临时文件已删除: " + bodyFile);
+    }
 
     public JSONObject getBodyAsJson() {
-        if (body == null || body.trim().isEmpty()) return null;
+        if (!jsonParsed) {
+            synchronized (this) {
+                if (!jsonParsed) {
+                    json = parseJson();
+                    jsonParsed = true;
+                }
+            }
+        }
+        return json;
+    }
+
+    private JSONObject parseJson() {
+        String text = getBody();
+        if (text == null || text.trim().isEmpty()) return null;
         try {
-            return JSON.parseObject(body);
+            return JSON.parseObject(text);
         } catch (Exception e) {
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,297 @@
+package com.apitest.basetestcase;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import com.apitest.core.ApiParamBuilder;
+import com.apitest.core.VariableScope;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 接口信息（apiInfo）的预编译模板，用于深度解析变量
+ * 1) 递归编译 Map、List 与 JSON 字符串（以 {" 或 [ 开头且 fastjson 可解析），记录每个节点是否含占位符
+ * 2) 不含占位符的子树在解析结果中直接共享原对象，不复制；含占位符的节点才新建容器
+ * 3) JSON 字符串按结构解析后重新序列化，替换值会被正确转义；不含占位符时原样返回
+ * 4) 编译结果按原始 apiInfo 的对象身份缓存（弱引用）；顶层条目被替换时自动重新编译，嵌套结构的原地修改不会被感知
+ * 5) 顶层 path 为 URI 模板：只展开作用域中有值的变量（编码规则见 ApiParamBuilder.buildPath），其余 {id} 原样保留，由 ApiParamBuilder.buildUrl 按 pathParameters 展开
+ * 解析结果中的共享子树不可修改
+ */
+final class ApiInfoTemplate {
+    private static final ConcurrentMap<IdentityKey, ApiInfoTemplate> CACHE = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final String PATH_KEY = "path";
+    private static final String PATH_PARAMETERS_KEY = "pathParameters";
+
+    private final String[] keys;
+    /** 编译时的顶层值，用于检测 apiInfo 是否被修改 */
+    private final Object[] sourceValues;
+    private final Node[] nodes;
+    /** 由本模板编译的请求，首次 PreparedRequest.of 时创建 */
+    volatile PreparedRequest prepared;
+
+    private ApiInfoTemplate(Map<String, Object> apiInfo) {
+        int n = apiInfo.size();
+        keys = new String[n];
+        sourceValues = new Object[n];
+        nodes = new Node[n];
+        int i = 0;
+        for (Map.Entry<String, Object> e : apiInfo.entrySet()) {
+            keys[i] = e.getKey();
+            sourceValues[i] = e.getValue();
+            nodes[i] = PATH_KEY.equals(e.getKey()) ? compilePath(e.getValue(), apiInfo.get(PATH_PARAMETERS_KEY)) : compile(e.getValue());
+            i++;
+        }
+    }
+
+    static ApiInfoTemplate of(Map<String, Object> apiInfo) {
+        expunge();
+        IdentityKey key = new IdentityKey(apiInfo, null);
+        ApiInfoTemplate t = CACHE.get(key);
+        if (t != null && t.matches(apiInfo)) return t;
+        t = new ApiInfoTemplate(apiInfo);
+        CACHE.put(new IdentityKey(apiInfo, QUEUE), t);
+        return t;
+    }
+
+    private boolean matches(Map<String, Object> apiInfo) {
+        if (apiInfo.size() != keys.length) return false;
+        int i = 0;
+        for (Map.Entry<String, Object> e : apiInfo.entrySet()) {
+            if (!e.getKey().equals(keys[i]) || e.getValue() != sourceValues[i]) return false;
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * 顶层条目 key 是否不含占位符（不存在的 key 视为不含）
+     */
+    boolean isStatic(String key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) return nodes[i] == null;
+        }
+        return true;
+    }
+
+    /**
+     * 顶层始终返回新的 LinkedHashMap，调用方可追加条目
+     */
+    Map<String, Object> render(VariableScope scope) {
+        return render(scope, null);
+    }
+
+    /**
+     * 同 render，但 rawKey 对应的顶层条目保留原值，由调用方自行解析
+     */
+    Map<String, Object> render(VariableScope scope, String rawKey) {
+        Map<String, Object> out = new LinkedHashMap<>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            boolean raw = nodes[i] == null || keys[i].equals(rawKey);
+            out.put(keys[i], raw ? sourceValues[i] : nodes[i].render(scope));
+        }
+        return out;
+    }
+
+    // ========== 节点编译 ==========
+
+    /**
+     * 返回 null 表示该子树不含占位符，解析时直接共享原对象
+     */
+    @SuppressWarnings("unchecked")
+    private static Node compile(Object value) {
+        if (value instanceof String) return compileString((String) value);
+        if (value instanceof Map) return compileMap((Map<Object, Object>) value);
+        if (value instanceof List) return compileList((List<Object>) value);
+        return null;
+    }
+
+    private static Node compilePath(Object value, Object pathParameters) {
+        if (!(value instanceof String) || !ApiParamBuilder.isTemplate((String) value)) return null;
+        String path = (String) value;
+        Map<?, ?> declared = pathParameters instanceof Map ? (Map<?, ?>) pathParameters : null;
+        return scope -> ApiParamBuilder.resolvePath(path, declared, scope);
+    }
+
+    private static Node compileString(String s) {
+        if (!CompiledTemplate.hasPlaceholder(s)) return null;
+        String trimmed = s.trim();
+        if (looksLikeJson(trimmed)) {
+            Object parsed;
+            try {
+                parsed = JSON.parse(trimmed, Feature.OrderedField);
+            } catch (RuntimeException e) {
+                parsed = null;
+            }
+            if (parsed instanceof Map || parsed instanceof List) {
+                Node inner = compile(parsed);
+                return inner == null ? null : new JsonStringNode(inner);
+            }
+        }
+        return new StringNode(CompiledTemplate.compile(s));
+    }
+
+    /**
+     * 对象须以 {" 开头（允许空白），避免把 {var} 形式的纯占位符当作 JSON；fastjson 解析失败时仍按普通模板处理
+     */
+    private static boolean looksLikeJson(String s) {
+        if (s.length() < 2) return false;
+        char first = s.charAt(0);
+        char last = s.charAt(s.length() - 1);
+        if (first == '[') return last == ']';
+        if (first != '{' || last != '}') return false;
+        for (int i = 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!Character.isWhitespace(c)) return c == '"';
+        }
+        return false;
+    }
+
+    private static Node compileMap(Map<Object, Object> map) {
+        int n = map.size();
+        Object[] keys = new Object[n];
+        Node[] keyNodes = new Node[n];
+        Object[] values = new Object[n];
+        Node[] valueNodes = new Node[n];
+        boolean dynamic = false;
+        int i = 0;
+        for (Map.Entry<Object, Object> e : map.entrySet()) {
+            keys[i] = e.getKey();
+            keyNodes[i] = e.getKey() instanceof String ? compileString((String) e.getKey()) : null;
+            values[i] = e.getValue();
+            valueNodes[i] = compile(e.getValue());
+            dynamic |= keyNodes[i] != null || valueNodes[i] != null;
+            i++;
+        }
+        return dynamic ? new MapNode((Object) map instanceof JSONObject, keys, keyNodes, values, valueNodes) : null;
+    }
+
+    private static Node compileList(List<Object> list) {
+        int n = list.size();
+        Object[] values = list.toArray();
+        Node[] nodes = new Node[n];
+        boolean dynamic = false;
+        for (int i = 0; i < n; i++) {
+            nodes[i] = compile(values[i]);
+            dynamic |= nodes[i] != null;
+        }
+        return dynamic ? new ListNode(list instanceof JSONArray, values, nodes) : null;
+    }
+
+    private interface Node {
+        Object render(VariableScope scope);
+    }
+
+    private static final class StringNode implements Node {
+        private final CompiledTemplate template;
+
+        StringNode(CompiledTemplate template) {
+            this.template = template;
+        }
+
+        @Override
+        public Object render(VariableScope scope) {
+            return template.render(scope);
+        }
+    }
+
+    private static final class JsonStringNode implements Node {
+        private final Node structure;
+
+        JsonStringNode(Node structure) {
+            this.structure = structure;
+        }
+
+        @Override
+        public Object render(VariableScope scope) {
+            return JSON.toJSONString(structure.render(scope));
+        }
+    }
+
+    private static final class MapNode implements Node {
+        private final boolean json;
+        private final Object[] keys;
+        private final Node[] keyNodes;
+        private final Object[] values;
+        private final Node[] valueNodes;
+
+        MapNode(boolean json, Object[] keys, Node[] keyNodes, Object[] values, Node[] valueNodes) {
+            this.json = json;
+            this.keys = keys;
+            this.keyNodes = keyNodes;
+            this.values = values;
+            this.valueNodes = valueNodes;
+        }
+
+        @Override
+        public Object render(VariableScope scope) {
+            // 保留 JSONObject 类型，使 toString 仍输出 JSON
+            Map<String, Object> out = json ? new JSONObject(keys.length * 2, true) : new LinkedHashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                Object k = keyNodes[i] == null ? keys[i] : keyNodes[i].render(scope);
+                out.put(String.valueOf(k), valueNodes[i] == null ? values[i] : valueNodes[i].render(scope));
+            }
+            return out;
+        }
+    }
+
+    private static final class ListNode implements Node {
+        private final boolean json;
+        private final Object[] values;
+        private final Node[] nodes;
+
+        ListNode(boolean json, Object[] values, Node[] nodes) {
+            this.json = json;
+            this.values = values;
+            this.nodes = nodes;
+        }
+
+        @Override
+        public Object render(VariableScope scope) {
+            List<Object> out = json ? new JSONArray(values.length) : new ArrayList<>(values.length);
+            for (int i = 0; i < values.length; i++) {
+                out.add(nodes[i] == null ? values[i] : nodes[i].render(scope));
+            }
+            return out;
+        }
+    }
+
+    // ========== 身份缓存 ==========
+
+    private static void expunge() {
+        Object ref;
+        while ((ref = QUEUE.poll()) != null) {
+            CACHE.remove(ref);
+        }
+    }
+
+    private static final class IdentityKey extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof IdentityKey)) return false;
+            Object mine = get();
+            return mine != null && mine == ((IdentityKey) o).get();
+        }
+    }
+}
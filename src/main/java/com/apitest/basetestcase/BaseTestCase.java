@@ -1,15 +1,19 @@
 package com.apitest.basetestcase;
 
-import com.apitest.core.ApiParamBuilder;
+import com.apitest.core.ApiRequestModel;
 import com.apitest.core.LogUtil;
+import com.apitest.core.VariableScope;
+import com.apitest.report.AllureReportUtil;
 import com.apitest.utils.HttpClientUtil;
+import com.apitest.utils.HttpSession;
 import org.apache.logging.log4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.InputStream;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * 测试基类：
@@ -31,8 +35,23 @@ public abstract class BaseTestCase {
     // 最近一次响应
     protected ApiHttpResponse lastResponse;
 
-    // 变量占位符：{var.path}
-    private static final Pattern VAR_PATTERN = Pattern.compile("\\{([^{}]+)\\}");
+    // suite → env(envConfig) → module(testDataVars) → 运行时变量(setVar) 作用域链，按上面两个字段的引用构建，直接修改其内容立即生效
+    private volatile ScopeBinding moduleScope;
+
+    private static final class ScopeBinding {
+        final Map<String, Object> env;
+        final Map<String, Object> vars;
+        final VariableScope scope;
+
+        ScopeBinding(Map<String, Object> env, Map<String, Object> vars) {
+            this.env = env;
+            this.vars = vars;
+            // 两个字段可被子类原地修改，按 liveChild 挂载不缓存查找结果；setVar 写入单独一层，不复制 testDataVars
+            this.scope = VariableScope.suite().liveChild(VariableScope.Level.ENV, env)
+                    .liveChild(VariableScope.Level.MODULE, vars)
+                    .child(VariableScope.Level.MODULE, new HashMap<>());
+        }
+    }
 
     protected void loadEnv(String envName) {
         String path = "apiconfig/" + envName + ".yaml";
@@ -63,96 +82,195 @@ public abstract class BaseTestCase {
 
     // ========== 变量解析 ==========
 
-    protected String resolveString(String template, Map<String, Object> caseVars) {
-        if (template == null) return null;
-        Matcher m = VAR_PATTERN.matcher(template);
-        StringBuffer sb = new StringBuffer();
-        while (m.find()) {
-            String key = m.group(1).trim();
-            Object val = findVar(key, caseVars, testDataVars, envConfig);
-            String replacement = val == null ? "" : String.valueOf(val);
-            m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+    /**
+     * 模块级作用域（suite → env → module），envConfig/testDataVars 被重新赋值时自动重建
+     */
+    protected VariableScope moduleScope() {
+        ScopeBinding b = moduleScope;
+        if (b == null || b.env != envConfig || b.vars != testDataVars) {
+            b = new ScopeBinding(envConfig, testDataVars);
+            moduleScope = b;
         }
-        m.appendTail(sb);
-        return sb.toString();
+        return b.scope;
     }
 
-    @SafeVarargs
-    private final Object findVar(String key, Map<String, Object>... sources) {
-        for (Map<String, Object> src : sources) {
-            Object val = readByDotPath(src, key);
-            if (val != null) return val;
-        }
-        return null;
+    /**
+     * 以用例变量创建 case 作用域（不复制数据），多步骤场景可再通过 child(STEP, ...) 叠加步骤变量
+     */
+    protected VariableScope caseScope(Map<String, Object> caseVars) {
+        return moduleScope().child(VariableScope.Level.CASE, caseVars);
     }
 
-    private Object readByDotPath(Map<String, Object> src, String path) {
-        if (src == null || path == null) return null;
-        String[] parts = path.split("\\.");
-        Object cur = src;
-        for (String p : parts) {
-            if (!(cur instanceof Map)) return null;
-            cur = ((Map<String, Object>) cur).get(p);
-            if (cur == null) return null;
-        }
-        return cur;
+    /**
+     * 运行中写入模块变量（写时复制，对后续解析立即生效，优先于 testDataVars 中的同名变量）
+     */
+    protected void setVar(String key, Object value) {
+        moduleScope().put(key, value);
+    }
+
+    /**
+     * 重建模块作用域，丢弃 setVar 写入的值；直接修改 envConfig/testDataVars 的内容无需调用
+     */
+    protected void refreshVars() {
+        moduleScope = null;
+    }
+
+    /**
+     * 替换变量占位符 {var.path}，依次查找用例变量、模块变量、环境变量
+     * 模板经 CompiledTemplate 预编译并缓存，重复调用不再做正则匹配与路径切分
+     */
+    protected String resolveString(String template, Map<String, Object> caseVars) {
+        return resolveString(template, caseScope(caseVars));
+    }
+
+    protected String resolveString(String template, VariableScope scope) {
+        if (template == null) return null;
+        if (!CompiledTemplate.hasPlaceholder(template)) return template;
+        return CompiledTemplate.compile(template).render(scope);
     }
 
+    /**
+     * 深度解析接口信息中的变量（Map、List、JSON 字符串），不含占位符的子树与原对象共享，不做复制
+     * 返回的顶层 Map 为新建对象；嵌套结构可能与 apiInfo 共享，不应原地修改
+     */
     protected Map<String, Object> resolveApiInfo(Map<String, Object> apiInfo, Map<String, Object> caseVars) {
-        Map<String, Object> out = new LinkedHashMap<>();
-        if (apiInfo == null) return out;
-        for (Map.Entry<String, Object> e : apiInfo.entrySet()) {
-            String k = e.getKey();
-            Object v = e.getValue();
-            if (v == null) { out.put(k, null); continue; }
-            if (v instanceof String) {
-                out.put(k, resolveString((String) v, caseVars));
-            } else if (v instanceof Map) {
-                Map<String, Object> nv = new LinkedHashMap<>();
-                ((Map<?, ?>) v).forEach((kk, vv) -> nv.put(String.valueOf(kk), vv instanceof String ? resolveString((String) vv, caseVars) : vv));
-                out.put(k, nv);
-            } else {
-                out.put(k, v);
-            }
-        }
-        return out;
+        return resolveApiInfo(apiInfo, caseScope(caseVars));
+    }
+
+    protected Map<String, Object> resolveApiInfo(Map<String, Object> apiInfo, VariableScope scope) {
+        if (apiInfo == null) return new LinkedHashMap<>();
+        return ApiInfoTemplate.of(apiInfo).render(scope);
     }
 
     // ========== 请求执行 ==========
 
-    @SuppressWarnings("unchecked")
+    /**
+     * 开启会话并绑定到当前线程：后续请求共享 Cookie 与会话请求头，登录一次即可复用，直到 closeSession
+     * 多个线程模拟同一虚拟用户时可使用 HttpSession.named(key).bind()
+     */
+    protected HttpSession openSession() {
+        return new HttpSession(getClass().getSimpleName()).bind();
+    }
+
+    protected void closeSession() {
+        HttpSession.unbind();
+    }
+
     public ApiHttpResponse execute(Map<String, Object> rawApiInfo, Map<String, Object> caseVars) throws Exception {
-        Map<String, Object> apiInfo = resolveApiInfo(rawApiInfo, caseVars);
-        // 组装基础参数
-        String url = ApiParamBuilder.buildUrl(apiInfo);
-        Map<String, String> headers = ApiParamBuilder.buildHeaders(apiInfo);
-        String body = ApiParamBuilder.buildBody(apiInfo);
-        String method = ApiParamBuilder.buildMethod(apiInfo);
-
-        // 根据 bodyParameters 自动设置 Content-Type
-        Map<String, Object> bodyParameters = null;
-        Object bp = apiInfo.get("bodyParameters");
-        if (bp instanceof Map) {
-            bodyParameters = (Map<String, Object>) bp;
-            if (headers == null) headers = new LinkedHashMap<>();
-            if (!headers.containsKey("Content-Type")) {
-                if (bodyParameters.containsKey("urlencoded")) {
-                    headers.put("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8");
-                } else if (bodyParameters.containsKey("formdata")) {
-                    headers.put("Content-Type", "multipart/form-data");
-                } else if (body != null) {
-                    headers.put("Content-Type", "application/json;charset=UTF-8");
-                }
+        return send(prepareRequest(rawApiInfo, caseVars));
+    }
+
+    /**
+     * 执行预编译请求：只绑定变量并发送，适合数据驱动与压测循环中重复执行同一接口
+     */
+    public ApiHttpResponse execute(PreparedRequest prepared, Map<String, Object> caseVars) throws Exception {
+        return send(prepared.bind(caseScope(caseVars)));
+    }
+
+    private ApiHttpResponse send(ApiRequestModel req) throws Exception {
+        logger.info("请求: {} {}", req.getMethod(), req.getUrl());
+        this.lastResponse = HttpClientUtil.sendRequestWithMetaAdvanced(req.getUrl(), req.getHttpMethod(), req.getHeaders(), req.getBody(),
+                req.getBodyParameters(), req.getHeaderSupplier());
+        logger.info("响应: status={}, len={}, wire={}, encoding={}", lastResponse.getStatusCode(), lastResponse.getBodyLength(),
+                lastResponse.getWireBytes(), lastResponse.getContentEncoding());
+        attachTiming(req, lastResponse);
+        return lastResponse;
+    }
+
+    /**
+     * 异步执行：变量解析与参数组装在调用线程完成，收发由 NIO 客户端完成，不占用调用线程。
+     * 完成后同样更新 lastResponse；并发调用时 lastResponse 仅代表最后完成的一次。
+     */
+    public CompletableFuture<ApiHttpResponse> executeAsync(Map<String, Object> rawApiInfo, Map<String, Object> caseVars) {
+        ApiRequestModel req;
+        try {
+            req = prepareRequest(rawApiInfo, caseVars);
+        } catch (Exception e) {
+            CompletableFuture<ApiHttpResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        logger.info("异步请求: {} {}", req.getMethod(), req.getUrl());
+        return HttpClientUtil.sendAsync(req.getUrl(), req.getHttpMethod(), req.getHeaders(), req.getBody(), req.getBodyParameters(),
+                        req.getHeaderSupplier())
+                .thenApply(r -> {
+                    this.lastResponse = r;
+                    logger.info("异步响应: status={}, len={}, wire={}, encoding={}", r.getStatusCode(), r.getBodyLength(),
+                            r.getWireBytes(), r.getContentEncoding());
+                    attachTiming(req, r);
+                    return r;
+                });
+    }
+
+    /**
+     * 批量执行：先解析全部请求，再以不超过 maxConcurrency 的并发经 NIO 客户端发送。
+     * 响应按输入顺序返回；单项失败（解析或发送）记录在 BatchResult.getFailures()，不中断其余请求。
+     * 批量执行不更新 lastResponse。
+     */
+    public BatchResult executeBatch(List<Map<String, Object>> apiInfos, Map<String, Object> caseVars, int maxConcurrency) {
+        int size = apiInfos == null ? 0 : apiInfos.size();
+        BatchResult result = new BatchResult(size);
+        List<ApiRequestModel> prepared = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            try {
+                prepared.add(prepareRequest(apiInfos.get(i), caseVars));
+            } catch (Exception e) {
+                prepared.add(null);
+                result.failure(i, e);
             }
-        } else if (body != null) {
-            if (headers == null) headers = new LinkedHashMap<>();
-            headers.putIfAbsent("Content-Type", "application/json;charset=UTF-8");
         }
 
-        logger.info("请求: {} {}", method, url);
-        this.lastResponse = HttpClientUtil.sendRequestWithMetaAdvanced(url, method, headers, body, bodyParameters);
-        logger.info("响应: status={}, len={}", lastResponse.getStatusCode(), lastResponse.getBody()==null?0:lastResponse.getBody().length());
-        return lastResponse;
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ApiRequestModel req = prepared.get(i);
+            if (req == null) continue;
+            final int index = i;
+            permits.acquireUninterruptibly();
+            CompletableFuture<ApiHttpResponse> sent;
+            try {
+                sent = HttpClientUtil.sendAsync(req.getUrl(), req.getHttpMethod(), req.getHeaders(), req.getBody(), req.getBodyParameters(),
+                        req.getHeaderSupplier());
+            } catch (RuntimeException e) {
+                // 同步抛出时不会进入 whenComplete，须在此归还许可
+                permits.release();
+                result.failure(index, e);
+                continue;
+            }
+            inFlight.add(sent.whenComplete((r, e) -> {
+                permits.release();
+                if (e != null) result.failure(index, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                else result.success(index, r);
+            }));
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ignored) {
+            // 失败已逐项记录
+        }
+        logger.info("批量执行完成: total={}, failed={}", size, result.getFailures().size());
+        return result;
+    }
+
+    /**
+     * 记录各网络阶段耗时到日志与 Allure，用于区分服务端慢与客户端/网络开销
+     */
+    protected void attachTiming(ApiRequestModel req, ApiHttpResponse response) {
+        String text = req.getMethod() + " " + req.getUrl() + "\n" + response.getTiming() + "\n" + response.getMetrics();
+        logger.info("耗时: {}", response.getTiming());
+        try {
+            AllureReportUtil.attach("请求耗时", text);
+        } catch (Throwable ignored) {
+            // 不在 Allure 生命周期内时忽略
+        }
+    }
+
+    /**
+     * 解析变量并组装请求参数（URL、请求头、Body、Content-Type）
+     * 接口按 apiInfo 对象预编译为 PreparedRequest 并缓存，重复执行只做变量绑定
+     */
+    protected ApiRequestModel prepareRequest(Map<String, Object> rawApiInfo, Map<String, Object> caseVars) throws Exception {
+        return PreparedRequest.of(rawApiInfo).bind(caseScope(caseVars));
     }
 
     public Object[] executeAsArray(Map<String, Object> rawApiInfo, Map<String, Object> caseVars) throws Exception {
@@ -0,0 +1,34 @@
+package com.apitest.basetestcase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量执行结果：响应按输入顺序排列，失败项对应位置为 null，失败原因见 getFailures()
+ */
+public class BatchResult {
+    private final List<ApiHttpResponse> responses;
+    private final Map<Integer, Throwable> failures;
+
+    BatchResult(int size) {
+        this.responses = new ArrayList<>(Collections.nCopies(size, null));
+        this.failures = new LinkedHashMap<>();
+    }
+
+    synchronized void success(int index, ApiHttpResponse response) {
+        responses.set(index, response);
+    }
+
+    synchronized void failure(int index, Throwable error) {
+        failures.put(index, error);
+    }
+
+    public List<ApiHttpResponse> getResponses() { return responses; }
+    public ApiHttpResponse get(int index) { return responses.get(index); }
+    public Map<Integer, Throwable> getFailures() { return failures; }
+    public boolean isAllSuccess() { return failures.isEmpty(); }
+    public int size() { return responses.size(); }
+}
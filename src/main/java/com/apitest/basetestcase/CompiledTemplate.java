@@ -0,0 +1,110 @@
+package com.apitest.basetestcase;
+
+import com.apitest.core.VariableScope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 预编译的变量占位模板：{var.path}
+ * 模板只解析一次，拆成字面量与变量片段，变量路径预先按 "." 切分；渲染时按片段顺序写入预估容量的 StringBuilder
+ * 变量值从 VariableScope 查找（按作用域代数缓存）
+ * 解析规则与正则 \{([^{}]+)\} 一致：变量名去除首尾空白，取不到值时替换为空串
+ * 编译结果按模板缓存（同一 YAML 字符串实例的哈希与 equals 判断均为常数开销），超出上限时整体清空
+ */
+final class CompiledTemplate {
+    private static final int MAX_CACHED = 8192;
+    private static final ConcurrentMap<String, CompiledTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /** 片段：变量片段 path != null（names 为原变量名），否则为字面量 literal */
+    private final String[] literals;
+    private final String[] names;
+    private final String[][] paths;
+    /** 预估渲染长度：字面量总长 + 每个变量 16 */
+    private final int estimatedLength;
+
+    private CompiledTemplate(String[] literals, String[] names, String[][] paths, int literalLength, int variables) {
+        this.literals = literals;
+        this.names = names;
+        this.paths = paths;
+        this.estimatedLength = literalLength + 16 * variables;
+    }
+
+    static CompiledTemplate compile(String template) {
+        CompiledTemplate t = CACHE.get(template);
+        if (t != null) return t;
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        t = parse(template);
+        CACHE.putIfAbsent(template, t);
+        return t;
+    }
+
+    /**
+     * 不含变量的模板直接原样返回，无需编译
+     */
+    static boolean hasPlaceholder(String template) {
+        return template.indexOf('{') >= 0;
+    }
+
+    private static CompiledTemplate parse(String s) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String[]> paths = new ArrayList<>();
+        StringBuilder lit = new StringBuilder();
+        int literalLength = 0;
+        int variables = 0;
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c != '{') {
+                lit.append(c);
+                i++;
+                continue;
+            }
+            // 找到下一个花括号：'}' 且中间非空则为变量；遇到 '{' 则当前 '{' 作为字面量
+            int j = i + 1;
+            while (j < n && s.charAt(j) != '{' && s.charAt(j) != '}') j++;
+            if (j < n && s.charAt(j) == '}' && j > i + 1) {
+                if (lit.length() > 0) {
+                    literals.add(lit.toString());
+                    names.add(null);
+                    paths.add(null);
+                    literalLength += lit.length();
+                    lit.setLength(0);
+                }
+                String name = s.substring(i + 1, j).trim();
+                literals.add(null);
+                names.add(name);
+                paths.add(VariableScope.splitPath(name));
+                variables++;
+                i = j + 1;
+            } else {
+                lit.append(c);
+                i++;
+            }
+        }
+        if (lit.length() > 0) {
+            literals.add(lit.toString());
+            names.add(null);
+            paths.add(null);
+            literalLength += lit.length();
+        }
+        return new CompiledTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), paths.toArray(new String[0][]), literalLength, variables);
+    }
+
+    String render(VariableScope scope) {
+        StringBuilder sb = new StringBuilder(estimatedLength);
+        for (int k = 0; k < literals.length; k++) {
+            if (paths[k] == null) {
+                sb.append(literals[k]);
+            } else {
+                Object val = scope.lookup(names[k], paths[k]);
+                if (val != null) sb.append(val);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.apitest.basetestcase;
+
+import com.apitest.core.ApiParamBuilder;
+import com.apitest.core.ApiRequestModel;
+import com.apitest.core.AuthStrategies;
+import com.apitest.core.AuthStrategy;
+import com.apitest.core.VariableScope;
+import com.apitest.model.ApiTestCaseModel;
+import com.apitest.utils.HttpMethod;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 预编译请求：由 apiInfo（或 ApiTestCaseModel）编译一次，重复执行时只做变量绑定
+ * 1) 编译时确定：HTTP 方法、变量模板（ApiInfoTemplate）、认证策略、不含变量的请求头与 Content-Type
+ * 2) bind(scope) 只渲染含变量的条目、由原始路径展开一次路径模板并写入认证头，得到可直接发送的 ApiRequestModel
+ * 3) 方法、请求头、auth 含变量时退回逐次解析，结果与 BaseTestCase.prepareRequest 一致
+ * 编译后 apiInfo 被原地修改不会被感知；of(Map) 在顶层条目被替换时重新编译
+ */
+public final class PreparedRequest {
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    private final ApiInfoTemplate template;
+    /** 以下字段为 null 表示含变量，绑定时逐次解析 */
+    private final HttpMethod method;
+    private final Map<String, String> staticHeaders;
+    private final AuthStrategy auth;
+    /** 请求头未显式指定时补充的 Content-Type，null 表示不补充 */
+    private final String contentType;
+
+    private PreparedRequest(Map<String, Object> apiInfo, ApiInfoTemplate template) {
+        this.template = template;
+        this.method = template.isStatic("method") ? HttpMethod.of(ApiParamBuilder.buildMethod(apiInfo)) : null;
+        this.staticHeaders = template.isStatic("headers") ? ApiParamBuilder.parseHeaders(apiInfo) : null;
+        this.auth = template.isStatic("auth") ? AuthStrategies.forEndpoint(apiInfo) : null;
+        this.contentType = contentType(apiInfo);
+    }
+
+    /**
+     * 编译 apiInfo；同一 apiInfo 对象重复调用返回同一实例
+     */
+    public static PreparedRequest of(Map<String, Object> apiInfo) {
+        if (apiInfo == null) apiInfo = Collections.emptyMap();
+        ApiInfoTemplate t = ApiInfoTemplate.of(apiInfo);
+        PreparedRequest p = t.prepared;
+        if (p == null) {
+            p = new PreparedRequest(apiInfo, t);
+            t.prepared = p;
+        }
+        return p;
+    }
+
+    /**
+     * 由用例模型编译，headerParameters 中有具体值的条目作为请求头；应持有返回值复用
+     */
+    public static PreparedRequest of(ApiTestCaseModel model) {
+        Map<String, Object> apiInfo = new LinkedHashMap<>();
+        apiInfo.put("method", model.getMethod());
+        apiInfo.put("host", model.getHost() == null ? "" : model.getHost());
+        apiInfo.put("path", model.getPath() == null ? "" : model.getPath());
+        apiInfo.put("url", model.getUrl());
+        apiInfo.put("name", model.getName());
+        apiInfo.put("operationId", model.getOperationId());
+        apiInfo.put("queryParameters", model.getQueryParameters());
+        apiInfo.put("pathParameters", model.getPathParameters());
+        apiInfo.put("headerParameters", model.getHeaderParameters());
+        apiInfo.put("bodyParameters", model.getBodyParameters());
+        apiInfo.put("body", model.getBody());
+        if (model.getHeaderParameters() != null) {
+            Map<String, Object> headers = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> e : model.getHeaderParameters().entrySet()) {
+                // Postman 为值本身；Swagger 为参数描述，仅 value 视为具体值
+                Object v = e.getValue() instanceof Map ? ((Map<?, ?>) e.getValue()).get("value") : e.getValue();
+                if (v != null) headers.put(e.getKey(), v);
+            }
+            if (!headers.isEmpty()) apiInfo.put("headers", headers);
+        }
+        return new PreparedRequest(apiInfo, ApiInfoTemplate.of(apiInfo));
+    }
+
+    /**
+     * 按作用域绑定变量，返回新的请求参数；可并发调用
+     */
+    @SuppressWarnings("unchecked")
+    public ApiRequestModel bind(VariableScope scope) throws Exception {
+        Map<String, Object> apiInfo = template.render(scope, "path");
+        // 路径参数按 URI 模板由原始路径只展开一次（作用域优先，其次 pathParameters），展开后的路径供 URL 与签名等认证策略使用
+        apiInfo.put("path", ApiParamBuilder.buildPath(apiInfo, scope));
+        String url = ApiParamBuilder.buildUrl(apiInfo);
+        HttpMethod m = method != null ? method : HttpMethod.of(ApiParamBuilder.buildMethod(apiInfo));
+        Map<String, String> base = staticHeaders != null ? staticHeaders : ApiParamBuilder.parseHeaders(apiInfo);
+        AuthStrategy strategy = auth != null ? auth : AuthStrategies.forEndpoint(apiInfo);
+        Object bp = apiInfo.get("bodyParameters");
+        ApiRequestModel req = new ApiRequestModel(url, m, headers(base, strategy, apiInfo), ApiParamBuilder.buildBody(apiInfo),
+                bp instanceof Map ? (Map<String, Object>) bp : null);
+        // 重试与对冲按同一 apiInfo 重新写入认证头
+        req.setHeaderSupplier(() -> headers(base, strategy, apiInfo));
+        return req;
+    }
+
+    private Map<String, String> headers(Map<String, String> base, AuthStrategy strategy, Map<String, Object> apiInfo) {
+        Map<String, String> headers = new HashMap<>(base);
+        strategy.apply(apiInfo, headers);
+        if (contentType != null) headers.putIfAbsent(CONTENT_TYPE, contentType);
+        return headers;
+    }
+
+    /**
+     * 根据 bodyParameters 与 body 决定 Content-Type；变量替换不改变 body 是否为空与 bodyParameters 的键
+     */
+    private static String contentType(Map<String, Object> apiInfo) {
+        Object bp = apiInfo.get("bodyParameters");
+        if (bp instanceof Map) {
+            Map<?, ?> bodyParameters = (Map<?, ?>) bp;
+            if (bodyParameters.containsKey("urlencoded")) return "application/x-www-form-urlencoded;charset=UTF-8";
+            if (bodyParameters.containsKey("formdata")) return "multipart/form-data";
+        }
+        return apiInfo.get("body") != null ? "application/json;charset=UTF-8" : null;
+    }
+}
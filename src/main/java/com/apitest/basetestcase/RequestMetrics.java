@@ -0,0 +1,32 @@
+package com.apitest.basetestcase;
+
+/**
+ * 单次请求的执行统计，随 ApiHttpResponse 返回
+ */
+public class RequestMetrics {
+    private volatile int retries;
+    private volatile int hedges;
+    private volatile long totalMs;
+    private volatile long permitWaitMs;
+
+    /** 重试次数（不含首次请求） */
+    public int getRetries() { return retries; }
+    public void setRetries(int retries) { this.retries = retries; }
+
+    /** 发出的对冲请求数 */
+    public int getHedges() { return hedges; }
+    public void setHedges(int hedges) { this.hedges = hedges; }
+
+    /** 含重试与对冲的总耗时 */
+    public long getTotalMs() { return totalMs; }
+    public void setTotalMs(long totalMs) { this.totalMs = totalMs; }
+
+    /** 本次响应对应请求在客户端限流上等待许可的时间 */
+    public long getPermitWaitMs() { return permitWaitMs; }
+    public void setPermitWaitMs(long permitWaitMs) { this.permitWaitMs = permitWaitMs; }
+
+    @Override
+    public String toString() {
+        return "RequestMetrics{retries=" + retries + ", hedges=" + hedges + ", totalMs=" + totalMs + ", permitWaitMs=" + permitWaitMs + '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.apitest.basetestcase;
+
+/**
+ * 单次请求的网络阶段耗时（毫秒），随 ApiHttpResponse 返回
+ * 复用连接池中的连接时 DNS/连接/TLS 为 0；经 JDK HttpClient（HTTP/2、异步）发送时无法拆分的阶段为 -1
+ */
+public class WireTiming {
+    private volatile double dnsMs;
+    private volatile double connectMs;
+    private volatile double tlsMs;
+    private volatile double writeMs;
+    private volatile double ttfbMs;
+    private volatile double downloadMs;
+    private volatile boolean reusedConnection;
+
+    /** DNS 解析耗时（命中 DNS 缓存时接近 0） */
+    public double getDnsMs() { return dnsMs; }
+    public void setDnsMs(double dnsMs) { this.dnsMs = dnsMs; }
+
+    /** TCP 建连耗时 */
+    public double getConnectMs() { return connectMs; }
+    public void setConnectMs(double connectMs) { this.connectMs = connectMs; }
+
+    /** TLS 握手耗时 */
+    public double getTlsMs() { return tlsMs; }
+    public void setTlsMs(double tlsMs) { this.tlsMs = tlsMs; }
+
+    /** 写出请求头与请求体耗时 */
+    public double getWriteMs() { return writeMs; }
+    public void setWriteMs(double writeMs) { this.writeMs = writeMs; }
+
+    /** 请求写完到收到响应头的耗时，主要反映服务端处理时间 */
+    public double getTtfbMs() { return ttfbMs; }
+    public void setTtfbMs(double ttfbMs) { this.ttfbMs = ttfbMs; }
+
+    /** 读取（含解压）响应体耗时 */
+    public double getDownloadMs() { return downloadMs; }
+    public void setDownloadMs(double downloadMs) { this.downloadMs = downloadMs; }
+
+    public boolean isReusedConnection() { return reusedConnection; }
+    public void setReusedConnection(boolean reusedConnection) { this.reusedConnection = reusedConnection; }
+
+    /**
+     * 各已知阶段之和
+     */
+    public double getTotalMs() {
+        double total = 0;
+        for (double v : new double[]{dnsMs, connectMs, tlsMs, writeMs, ttfbMs, downloadMs}) {
+            if (v > 0) total += v;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "dns=" + fmt(dnsMs) + " connect=" + fmt(connectMs) + " tls=" + fmt(tlsMs)
+                + " write=" + fmt(writeMs) + " ttfb=" + fmt(ttfbMs) + " download=" + fmt(downloadMs)
+                + " total=" + fmt(getTotalMs()) + (reusedConnection ? " (复用连接)" : "");
+    }
+
+    private static String fmt(double ms) {
+        return ms < 0 ? "n/a" : String.format("%.2fms", ms);
+    }
+}
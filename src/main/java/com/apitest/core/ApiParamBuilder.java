@@ -2,11 +2,15 @@ package com.apitest.core;
 
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.apitest.utils.EnvConfig;
 import com.apitest.utils.UCUtils;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -15,24 +19,167 @@ import java.util.regex.Pattern;
  * API参数组装工具类（Map驱动）
  */
 public class ApiParamBuilder {
+    private static final int MAX_CACHED_PATHS = 4096;
+    private static final ConcurrentMap<String, UriTemplate> PATH_TEMPLATES = new ConcurrentHashMap<>();
+    /** 查询参数表达式，变量值为 queryParameters 中有具体值的条目 */
+    private static final String QUERY_VAR = "queryParameters";
+    private static final UriTemplate QUERY_TEMPLATE = UriTemplate.compile("{?" + QUERY_VAR + "*}");
+    /** Postman 路径变量 :name 与 {{name}} */
+    private static final Pattern POSTMAN_VAR = Pattern.compile("(?<=/):([A-Za-z0-9_.%-]+)|\\{\\{\\s*([^{}]+?)\\s*}}");
+
+    private static class Config {
+        /** 未配置 query 时是否把 queryParameters 中有具体值的条目追加为查询串 */
+        private static final boolean SEND_QUERY_PARAMETERS = EnvConfig.getBoolean("request.sendQueryParameters", false);
+    }
+
     /**
      * 由接口信息Map组装请求URL
      */
     public static String buildUrl(Map<String, Object> apiInfo) throws UnsupportedEncodingException {
+        return buildUrl(apiInfo, null);
+    }
+
+    /**
+     * 由接口信息Map组装请求URL，路径按 RFC 6570 URI 模板展开（见 buildPath）
+     * 查询串取自 query；未配置 query 且开启 sendQueryParameters（apiInfo 中的同名字段优先，缺省为环境 request.sendQueryParameters，默认关闭）时，
+     * queryParameters 中有具体值的条目（Postman 值或 Swagger 参数的 value）编码后追加为查询串
+     */
+    public static String buildUrl(Map<String, Object> apiInfo, VariableScope scope) throws UnsupportedEncodingException {
         String host = (String) apiInfo.get("host");
-        String path = (String) apiInfo.get("path");
-        String url = (host.endsWith("/") ? host.substring(0, host.length() - 1) : host)
-                + (path.startsWith("/") ? path : "/" + path);
+        return (host.endsWith("/") ? host.substring(0, host.length() - 1) : host) + buildRequestTarget(apiInfo, scope);
+    }
+
+    /**
+     * 请求目标：展开后的路径加实际发送的查询串（不含 scheme 与 host），与 buildUrl 发送的一致，供签名等认证策略使用
+     */
+    public static String buildRequestTarget(Map<String, Object> apiInfo, VariableScope scope) throws UnsupportedEncodingException {
+        String path = buildPath(apiInfo, scope);
+        String target = path.startsWith("/") ? path : "/" + path;
 
         // 处理 query
         Object queryObj = apiInfo.get("query");
-        if (queryObj != null && !queryObj.toString().trim().isEmpty()) {
+        if (queryObj == null) {
+            if (apiInfo.get(QUERY_VAR) instanceof Map && sendQueryParameters(apiInfo)) {
+                target += QUERY_TEMPLATE.expand(name -> valueOf(apiInfo, name, scope));
+            }
+        } else if (!queryObj.toString().trim().isEmpty()) {
             String queryString = buildQueryString(queryObj);
             if (!queryString.isEmpty()) {
-                url += (url.contains("?") ? "&" : "?") + queryString;
+                target += (target.contains("?") ? "&" : "?") + queryString;
             }
         }
-        return url;
+        return target;
+    }
+
+    /**
+     * 展开接口路径：/workspace/{id}、Postman 的 /:id 与 /{{id}} 均为路径参数
+     * 取值顺序：变量作用域 scope（用例/模块/环境变量，与其他字段的变量解析一致），再到 pathParameters（Postman 值或 Swagger 参数的 value）；
+     * 均取不到时为空串
+     * 模板按原始路径编译并缓存；pathParameters 中声明的参数按 RFC 6570 百分号编码，
+     * 其余变量（如环境中的 basePath=/api/v1）按 {+var} 展开，保留 / 等保留字符
+     * 不含路径参数的路径原样返回
+     */
+    public static String buildPath(Map<String, Object> apiInfo, VariableScope scope) {
+        String path = (String) apiInfo.get("path");
+        if (!isTemplate(path)) return path;
+        Object params = apiInfo.get("pathParameters");
+        return template(path).expand(new PathVariables(params instanceof Map ? (Map<?, ?>) params : null,
+                name -> valueOf(apiInfo, name, scope)));
+    }
+
+    /**
+     * 只用变量作用域展开路径参数，作用域中没有的参数原样保留（留给 buildPath/buildUrl 按 pathParameters 展开）
+     * 供 BaseTestCase.resolveApiInfo 解析 path，使 resolveApiInfo + buildUrl(apiInfo) 仍得到完整 URL
+     * 编码规则同 buildPath：pathParameters 中声明的参数百分号编码，其余变量按 {+var} 展开
+     */
+    public static String resolvePath(String path, Map<?, ?> pathParameters, VariableScope scope) {
+        if (!isTemplate(path) || scope == null) return path;
+        return template(path).expandPartial(new PathVariables(pathParameters, scope::get));
+    }
+
+    /**
+     * 同 resolvePath(path, null, scope)：没有声明的路径参数，全部变量按 {+var} 展开
+     */
+    public static String resolvePath(String path, VariableScope scope) {
+        return resolvePath(path, null, scope);
+    }
+
+    /**
+     * 路径变量取值：pathParameters 中声明的参数按普通 {var} 编码，其余变量视为 URL 片段按 {+var} 展开
+     */
+    private static final class PathVariables implements UriTemplate.Variables {
+        private final Map<?, ?> declared;
+        private final UriTemplate.Variables values;
+
+        PathVariables(Map<?, ?> declared, UriTemplate.Variables values) {
+            this.declared = declared;
+            this.values = values;
+        }
+
+        @Override
+        public Object get(String name) {
+            return values.get(name);
+        }
+
+        @Override
+        public boolean allowReserved(String name) {
+            return declared == null || !declared.containsKey(name);
+        }
+    }
+
+    private static boolean sendQueryParameters(Map<String, Object> apiInfo) {
+        Object v = apiInfo.get("sendQueryParameters");
+        if (v != null) return Boolean.parseBoolean(v.toString());
+        return Config.SEND_QUERY_PARAMETERS;
+    }
+
+    /**
+     * 路径是否含路径参数
+     */
+    public static boolean isTemplate(String path) {
+        return path != null && (path.indexOf('{') >= 0 || path.contains("/:"));
+    }
+
+    private static UriTemplate template(String path) {
+        UriTemplate t = PATH_TEMPLATES.get(path);
+        if (t != null) return t;
+        if (PATH_TEMPLATES.size() >= MAX_CACHED_PATHS) PATH_TEMPLATES.clear();
+        Matcher m = POSTMAN_VAR.matcher(path);
+        StringBuffer sb = new StringBuffer(path.length() + 16);
+        while (m.find()) {
+            m.appendReplacement(sb, Matcher.quoteReplacement("{" + (m.group(1) != null ? m.group(1) : m.group(2)) + "}"));
+        }
+        m.appendTail(sb);
+        t = UriTemplate.compile(sb.toString());
+        PATH_TEMPLATES.putIfAbsent(path, t);
+        return t;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object valueOf(Map<String, Object> apiInfo, String name, VariableScope scope) {
+        if (QUERY_VAR.equals(name)) {
+            Map<String, Object> query = (Map<String, Object>) apiInfo.get(QUERY_VAR);
+            Map<String, Object> values = null;
+            for (Map.Entry<String, Object> e : query.entrySet()) {
+                Object v = concreteValue(e.getValue());
+                if (v == null) continue;
+                if (values == null) values = new LinkedHashMap<>();
+                values.put(e.getKey(), v);
+            }
+            return values;
+        }
+        Object v = scope == null ? null : scope.get(name);
+        if (v != null) return v;
+        Object params = apiInfo.get("pathParameters");
+        return params instanceof Map ? concreteValue(((Map<String, Object>) params).get(name)) : null;
+    }
+
+    /**
+     * Postman 参数为值本身；Swagger 参数为描述 Map，仅 value 视为具体值（default 不自动发送）
+     */
+    private static Object concreteValue(Object param) {
+        if (param instanceof Map) return ((Map<?, ?>) param).get("value");
+        return param;
     }
 
     /**
@@ -89,13 +236,21 @@ public class ApiParamBuilder {
     }
 
     /**
-     * 组装请求头
+     * 组装请求头，并按接口的认证策略（apiInfo.auth，缺省为环境 auth.strategy）写入认证信息
      */
     public static Map<String, String> buildHeaders(Map<String, Object> apiInfo) {
+        Map<String, String> headers = parseHeaders(apiInfo);
+        AuthStrategies.forEndpoint(apiInfo).apply(apiInfo, headers);
+        return headers;
+    }
+
+    /**
+     * 仅解析 apiInfo.headers（Map 或 JSON字符串），不写入认证信息
+     */
+    public static Map<String, String> parseHeaders(Map<String, Object> apiInfo) {
         Object headerObj = apiInfo.get("headers");
         Map<String, String> headers = new HashMap<>();
 
-        if (headerObj == null) return headers;
         if (headerObj instanceof Map) {
             Map<?, ?> map = (Map<?, ?>) headerObj;
             for (Object key : map.keySet()) {
@@ -112,11 +267,6 @@ public class ApiParamBuilder {
                 // ignore
             }
         }
-            // 自动加token
-    String token = TokenProvider.getToken();
-    if (token != null && !token.isEmpty()) {
-        headers.put("Authorization", "Bearer " + token);
-    }
         return headers;
     }
 
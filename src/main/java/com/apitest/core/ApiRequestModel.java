@@ -1,6 +1,9 @@
 package com.apitest.core;
 
+import com.apitest.utils.HttpMethod;
+
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * API请求参数模型
@@ -8,14 +11,30 @@ import java.util.Map;
 public class ApiRequestModel {
     private String url;
     private String method;
+    private HttpMethod httpMethod;
     private Map<String, String> headers;
     private String body;
+    private Map<String, Object> bodyParameters;
+    private Supplier<Map<String, String>> headerSupplier;
 
     public ApiRequestModel(String url, String method, Map<String, String> headers, String body) {
-        this.url = url;
+        this(url, method, headers, body, null);
+    }
+
+    public ApiRequestModel(String url, String method, Map<String, String> headers, String body,
+                           Map<String, Object> bodyParameters) {
+        this(url, HttpMethod.of(method), headers, body, bodyParameters);
         this.method = method;
+    }
+
+    public ApiRequestModel(String url, HttpMethod method, Map<String, String> headers, String body,
+                           Map<String, Object> bodyParameters) {
+        this.url = url;
+        this.method = method.name();
+        this.httpMethod = method;
         this.headers = headers;
         this.body = body;
+        this.bodyParameters = bodyParameters;
     }
 
     public String getUrl() {
@@ -26,6 +45,10 @@ public class ApiRequestModel {
         return method;
     }
 
+    public HttpMethod getHttpMethod() {
+        return httpMethod;
+    }
+
     public Map<String, String> getHeaders() {
         return headers;
     }
@@ -34,6 +57,21 @@ public class ApiRequestModel {
         return body;
     }
 
+    public Map<String, Object> getBodyParameters() {
+        return bodyParameters;
+    }
+
+    /**
+     * 重新生成请求头（含认证头），重试与对冲的每次尝试调用一次，使 HMAC 时间戳与 nonce 不被重放；null 表示沿用 getHeaders()
+     */
+    public Supplier<Map<String, String>> getHeaderSupplier() {
+        return headerSupplier;
+    }
+
+    public void setHeaderSupplier(Supplier<Map<String, String>> headerSupplier) {
+        this.headerSupplier = headerSupplier;
+    }
+
     @Override
     public String toString() {
         return "ApiRequestModel{" +
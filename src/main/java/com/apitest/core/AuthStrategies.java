@@ -0,0 +1,230 @@
+package com.apitest.core;
+
+import com.alibaba.fastjson.JSON;
+import com.apitest.utils.EnvConfig;
+import com.apitest.utils.UCUtils;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 认证策略注册与选择
+ * 1) 内置：none（公开接口）、token（TokenProvider 凭证池，默认）、bearer（固定 auth.token）、
+ *    basic（auth.username/auth.password）、hmac（按请求签名）、cookie（固定 auth.cookie，会话 Cookie 由 HttpSession 维护）
+ * 2) 接口通过 apiInfo.auth 指定：类型名，或 {type: ..., 参数}（参数覆盖环境 auth 配置）；未指定类型时使用环境 auth.strategy
+ *    环境 auth 下的 type 为环境自身的认证描述（basic/bearer/oauth2 等），不参与策略选择
+ * 3) 策略实例按配置缓存，组装请求头时只做一次 Map 查找
+ * 用例已显式携带 Authorization 头时，bearer/basic 等固定凭证不覆盖；token 策略默认覆盖（auth.overrideHeader=false 时保留）
+ */
+public class AuthStrategies {
+    private static final Logger logger = LogUtil.getLogger(AuthStrategies.class);
+
+    public static final String AUTHORIZATION = "Authorization";
+    private static final String DEFAULT_KEY = "";
+    private static final int MAX_CACHED = 1024;
+
+    private static final ConcurrentMap<String, Function<Map<String, Object>, AuthStrategy>> FACTORIES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, AuthStrategy> CACHE = new ConcurrentHashMap<>();
+
+    public static final AuthStrategy NONE = (apiInfo, headers) -> {
+    };
+
+    static {
+        register("none", params -> NONE);
+        register("token", TokenAuth::new);
+        register("bearer", BearerAuth::new);
+        register("basic", BasicAuth::new);
+        register("hmac", HmacAuth::new);
+        register("cookie", CookieAuth::new);
+    }
+
+    /**
+     * 注册自定义策略，factory 入参为合并后的 auth 参数
+     */
+    public static void register(String type, Function<Map<String, Object>, AuthStrategy> factory) {
+        FACTORIES.put(type.toLowerCase(), factory);
+        CACHE.clear();
+    }
+
+    /**
+     * 取接口对应的认证策略
+     */
+    @SuppressWarnings("unchecked")
+    public static AuthStrategy forEndpoint(Map<String, Object> apiInfo) {
+        Object spec = apiInfo == null ? null : apiInfo.get("auth");
+        if (spec instanceof String) {
+            String s = ((String) spec).trim();
+            if (s.startsWith("{")) spec = JSON.parseObject(s);
+            else if (s.isEmpty()) spec = null;
+        }
+        if (spec == null) {
+            return cached(DEFAULT_KEY, () -> create(EnvConfig.getString("auth.strategy", "token"), envParams()));
+        }
+        if (spec instanceof Map) {
+            Map<String, Object> params = envParams();
+            params.putAll((Map<String, Object>) spec);
+            Object type = params.get("type");
+            return cached("map:" + spec, () -> create(type == null ? EnvConfig.getString("auth.strategy", "token")
+                    : type.toString(), params));
+        }
+        String type = spec.toString().trim();
+        return cached("type:" + type, () -> create(type, envParams()));
+    }
+
+    private static AuthStrategy cached(String key, Supplier<AuthStrategy> creator) {
+        AuthStrategy s = CACHE.get(key);
+        if (s != null) return s;
+        // 参数中含逐条用例变量时避免无界增长
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        return CACHE.computeIfAbsent(key, k -> creator.get());
+    }
+
+    private static AuthStrategy create(String type, Map<String, Object> params) {
+        Function<Map<String, Object>, AuthStrategy> factory = FACTORIES.get(type.toLowerCase());
+        if (factory == null) throw new IllegalArgumentException("未知的认证策略: " + type + "，可选 " + FACTORIES.keySet());
+        return factory.apply(params);
+    }
+
+    /**
+     * 环境 auth 配置作为策略参数；去掉 type，避免其覆盖 auth.strategy 或被当作接口指定的类型
+     */
+    private static Map<String, Object> envParams() {
+        Map<String, Object> params = new LinkedHashMap<>(EnvConfig.getMap("auth"));
+        params.remove("type");
+        return params;
+    }
+
+    private static String param(Map<String, Object> params, String key, String def) {
+        Object v = params.get(key);
+        String s = v == null ? null : EnvConfig.resolve(v.toString());
+        return s == null || s.isEmpty() ? def : s;
+    }
+
+    /**
+     * TokenProvider 凭证池的 Bearer Token；apiInfo.credential 或参数 credential 指定凭证
+     * Token 为空时不写入；默认覆盖用例自带的 Authorization，参数 overrideHeader=false 时保留用例的值
+     */
+    static class TokenAuth implements AuthStrategy {
+        private final String credential;
+        private final boolean overrideHeader;
+
+        TokenAuth(Map<String, Object> params) {
+            this.credential = param(params, "credential", null);
+            this.overrideHeader = Boolean.parseBoolean(param(params, "overrideHeader", "true"));
+        }
+
+        @Override
+        public void apply(Map<String, Object> apiInfo, Map<String, String> headers) {
+            if (!overrideHeader && headers.containsKey(AUTHORIZATION)) return;
+            Object c = apiInfo.get("credential");
+            String value = TokenProvider.getAuthorization(c == null ? credential : c.toString());
+            if (value != null) headers.put(AUTHORIZATION, value);
+        }
+    }
+
+    static class BearerAuth implements AuthStrategy {
+        private final String value;
+
+        BearerAuth(Map<String, Object> params) {
+            String token = param(params, "token", null);
+            if (token == null) logger.warn("bearer 认证未配置 auth.token，不写入 Authorization");
+            this.value = token == null ? null : "Bearer " + token;
+        }
+
+        @Override
+        public void apply(Map<String, Object> apiInfo, Map<String, String> headers) {
+            if (value != null) headers.putIfAbsent(AUTHORIZATION, value);
+        }
+    }
+
+    static class BasicAuth implements AuthStrategy {
+        private final String value;
+
+        BasicAuth(Map<String, Object> params) {
+            this.value = UCUtils.getBasicAuthHeader(param(params, "username", param(params, "appKey", "")),
+                    param(params, "password", param(params, "appSecret", "")));
+        }
+
+        @Override
+        public void apply(Map<String, Object> apiInfo, Map<String, String> headers) {
+            headers.putIfAbsent(AUTHORIZATION, value);
+        }
+    }
+
+    /**
+     * HMAC-SHA256 签名：签名串为 METHOD\npath?query\ntimestamp\nnonce\nSHA256(body)，Base64 结果写入 X-Signature
+     * path?query 为实际发送的请求目标（展开后的路径与编码后的查询串，见 ApiParamBuilder.buildRequestTarget）
+     * 密钥与 appKey 取 auth.appKey/auth.appSecret，缺省为 UCAppKey/UCAppSecret
+     */
+    static class HmacAuth implements AuthStrategy {
+        private final String appKey;
+        private final Mac prototype;
+
+        HmacAuth(Map<String, Object> params) {
+            this.appKey = param(params, "appKey", EnvConfig.getString("UCAppKey", ""));
+            String secret = param(params, "appSecret", EnvConfig.getString("UCAppSecret", ""));
+            try {
+                prototype = Mac.getInstance("HmacSHA256");
+                prototype.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            } catch (Exception e) {
+                throw new IllegalStateException("初始化HMAC失败", e);
+            }
+        }
+
+        @Override
+        public void apply(Map<String, Object> apiInfo, Map<String, String> headers) {
+            String body = ApiParamBuilder.buildBody(apiInfo);
+            String target = requestTarget(apiInfo);
+            String timestamp = String.valueOf(System.currentTimeMillis());
+            String nonce = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            String canonical = ApiParamBuilder.buildMethod(apiInfo).toUpperCase() + "\n" + target + "\n" + timestamp
+                    + "\n" + nonce + "\n" + DigestUtils.sha256Hex(body == null ? "" : body);
+            headers.put("X-App-Key", appKey);
+            headers.put("X-Timestamp", timestamp);
+            headers.put("X-Nonce", nonce);
+            headers.put("X-Signature", Base64.encodeBase64String(mac().doFinal(canonical.getBytes(StandardCharsets.UTF_8))));
+        }
+
+        private static String requestTarget(Map<String, Object> apiInfo) {
+            if (apiInfo.get("path") == null) return "/";
+            try {
+                return ApiParamBuilder.buildRequestTarget(apiInfo, null);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException("组装签名路径失败", e);
+            }
+        }
+
+        private Mac mac() {
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("HMAC实现不支持clone", e);
+            }
+        }
+    }
+
+    static class CookieAuth implements AuthStrategy {
+        private final String cookie;
+
+        CookieAuth(Map<String, Object> params) {
+            this.cookie = param(params, "cookie", null);
+        }
+
+        @Override
+        public void apply(Map<String, Object> apiInfo, Map<String, String> headers) {
+            if (cookie != null) headers.putIfAbsent("Cookie", cookie);
+        }
+    }
+}
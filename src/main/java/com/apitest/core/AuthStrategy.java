@@ -0,0 +1,17 @@
+package com.apitest.core;
+
+import java.util.Map;
+
+/**
+ * 认证策略：向请求头写入认证信息
+ * 实现在构造时预先计算固定的头部值，apply 只做写入；按请求变化的部分（如 HMAC 签名）在 apply 中计算
+ * 内置策略见 AuthStrategies，自定义策略通过 AuthStrategies.register 注册
+ */
+public interface AuthStrategy {
+
+    /**
+     * @param apiInfo 已解析变量的接口信息（method/path/body 等）
+     * @param headers 待发送的请求头，可直接写入
+     */
+    void apply(Map<String, Object> apiInfo, Map<String, String> headers);
+}
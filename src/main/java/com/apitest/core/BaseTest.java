@@ -1,13 +1,23 @@
 package com.apitest.core;
 
+import com.apitest.utils.ConnectionWarmer;
 import io.restassured.RestAssured;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeSuite;
 
 /**
  * 基础测试类
  * 提供通用的测试配置和初始化
  */
 public class BaseTest {
+
+    /**
+     * 套件开始前预热 DNS 与连接池（warmup.enabled 控制），耗时单独记录，不计入用例
+     */
+    @BeforeSuite(alwaysRun = true)
+    public void warmUpConnections() {
+        ConnectionWarmer.warmUp();
+    }
     
     @BeforeClass
     public void setUpBase() {
@@ -0,0 +1,127 @@
+package com.apitest.core;
+
+import com.apitest.utils.EnvConfig;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据驱动用例执行器
+ * 将 DataProvider 产出的每一行（如 BaseTest.excelDataProvider、TestDataManager.getApiTestData）作为独立任务执行：
+ * 1) runner.mode=virtual：每行一个虚拟线程（JDK 21+），阻塞的 HttpClientUtil 调用只挂起虚拟线程，不占用平台线程
+ * 2) JDK 低于 21 或 runner.mode=platform：回落到固定大小的平台线程池（runner.platformThreads）
+ * 3) runner.concurrency 限制同时在途的用例数，结果按输入顺序返回，单行失败不影响其他行
+ * 虚拟线程模式下并发通常受 HTTP 连接池限制，需同步调大 http.pool.maxPerRoute / maxTotal
+ */
+public class DataDrivenRunner {
+    private static final Logger logger = LogUtil.getLogger(DataDrivenRunner.class);
+
+    /**
+     * 单行用例逻辑
+     */
+    @FunctionalInterface
+    public interface CaseTask {
+        void run(Object[] row) throws Exception;
+    }
+
+    public static class CaseResult {
+        public final int index;
+        public final Object[] row;
+        public final Throwable error;
+        public final long durationMs;
+
+        CaseResult(int index, Object[] row, Throwable error, long durationMs) {
+            this.index = index;
+            this.row = row;
+            this.error = error;
+            this.durationMs = durationMs;
+        }
+
+        public boolean isSuccess() { return error == null; }
+    }
+
+    public static List<CaseResult> run(Object[][] data, CaseTask task) {
+        return run(data, task, EnvConfig.getInt("runner.concurrency", 200));
+    }
+
+    public static List<CaseResult> run(Object[][] data, CaseTask task, int concurrency) {
+        List<CaseResult> results = new ArrayList<>();
+        if (data == null || data.length == 0) return results;
+
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        ExecutorService executor = newExecutor();
+        List<Future<CaseResult>> futures = new ArrayList<>(data.length);
+        try {
+            for (int i = 0; i < data.length; i++) {
+                final int index = i;
+                final Object[] row = data[i];
+                permits.acquireUninterruptibly();
+                futures.add(executor.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        task.run(row);
+                        return new CaseResult(index, row, null, System.currentTimeMillis() - start);
+                    } catch (Throwable t) {
+                        return new CaseResult(index, row, t, System.currentTimeMillis() - start);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<CaseResult> f : futures) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("数据驱动执行被中断", e);
+        } catch (Exception e) {
+            throw new RuntimeException("数据驱动执行失败", e);
+        } finally {
+            executor.shutdown();
+        }
+
+        long failed = results.stream().filter(r -> !r.isSuccess()).count();
+        logger.info("数据驱动执行完成: total={}, failed={}", results.size(), failed);
+        return results;
+    }
+
+    /**
+     * 汇总失败行并抛出 AssertionError，便于在 @Test 方法末尾统一断言
+     */
+    public static void assertAllPassed(List<CaseResult> results) {
+        StringBuilder sb = new StringBuilder();
+        for (CaseResult r : results) {
+            if (r.isSuccess()) continue;
+            sb.append("[").append(r.index).append("] ").append(r.error).append("\n");
+        }
+        if (sb.length() > 0) {
+            throw new AssertionError("数据驱动用例失败:\n" + sb);
+        }
+    }
+
+    private static ExecutorService newExecutor() {
+        String mode = EnvConfig.getString("runner.mode", "virtual");
+        if ("virtual".equalsIgnoreCase(mode)) {
+            try {
+                Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) m.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("当前JDK不支持虚拟线程，回落到平台线程池");
+            }
+        }
+        int threads = EnvConfig.getInt("runner.platformThreads", 32);
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "data-runner-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package com.apitest.core;
+
+import com.alibaba.fastjson.JSONObject;
+import com.apitest.utils.EnvConfig;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * 本地 Token 磁盘缓存（token.cache.enabled=true 时启用）
+ * 1) 每组 tokenUrl + appKey 一个文件（token.cache.dir，默认 ~/.apitest/tokens 下，文件名为二者的 SHA-256），跨 JVM 复用未过期的 Token
+ * 2) 内容以 AES-GCM 加密，密钥由 appSecret 与 token.cache.key 派生，没有对应凭证无法解密；解密失败视为未命中
+ * 3) 读取与刷新期间持有文件排它锁：同机多个 JVM 同时刷新时只有一个访问 tokenUrl，其余等待后直接读取新 Token
+ */
+final class TokenCache {
+    private static final Logger logger = LogUtil.getLogger(TokenCache.class);
+
+    private static final byte VERSION = 1;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    /** FileLock 在同一 JVM 内不可重入，同一文件的并发访问先在进程内串行 */
+    private static final ConcurrentMap<Path, Object> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    static final class Entry {
+        final String token;
+        final long issuedAt;
+        final long expiresAt;
+
+        Entry(String token, long issuedAt, long expiresAt) {
+            this.token = token;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private TokenCache() {
+    }
+
+    static boolean isEnabled() {
+        return EnvConfig.getBoolean("token.cache.enabled", false);
+    }
+
+    /**
+     * 在文件锁内读取缓存：accept 判定可用时直接返回，否则调用 remote 获取并写回
+     * 缓存读写失败时退化为直接调用 remote
+     */
+    static Entry load(String tokenUrl, String appKey, String appSecret, Predicate<Entry> accept, Callable<Entry> remote) throws Exception {
+        String id = DigestUtils.sha256Hex(tokenUrl + "\n" + appKey);
+        String dir = EnvConfig.getString("token.cache.dir", "").trim();
+        if (dir.isEmpty()) dir = System.getProperty("user.home") + "/.apitest/tokens";
+        Path file = Paths.get(dir, id + ".tok");
+        SecretKeySpec key = new SecretKeySpec(DigestUtils.sha256(appSecret + "\n"
+                + EnvConfig.getString("token.cache.key", "")), "AES");
+        byte[] aad = id.getBytes(StandardCharsets.UTF_8);
+
+        FileChannel channel;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            restrictPermissions(file);
+        } catch (IOException e) {
+            logger.warn("token缓存不可用 {}: {}", file, e.getMessage());
+            return remote.call();
+        }
+        synchronized (LOCAL_LOCKS.computeIfAbsent(file, k -> new Object())) {
+            try (FileChannel ch = channel; FileLock ignored = ch.lock()) {
+                Entry cached = read(ch, key, aad);
+                if (cached != null && accept.test(cached)) {
+                    logger.debug("命中token缓存: {}", file);
+                    return cached;
+                }
+                Entry fresh = remote.call();
+                try {
+                    write(ch, key, aad, fresh);
+                } catch (IOException e) {
+                    logger.warn("写入token缓存失败 {}: {}", file, e.getMessage());
+                }
+                return fresh;
+            }
+        }
+    }
+
+    private static Entry read(FileChannel ch, SecretKeySpec key, byte[] aad) {
+        try {
+            long size = ch.size();
+            if (size <= 1 + IV_BYTES || size > 64 * 1024) return null;
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining() && ch.read(buf, buf.position()) > 0) {
+                // 读满为止
+            }
+            byte[] raw = buf.array();
+            if (raw[0] != VERSION) return null;
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, raw, 1, IV_BYTES));
+            cipher.updateAAD(aad);
+            byte[] plain = cipher.doFinal(raw, 1 + IV_BYTES, raw.length - 1 - IV_BYTES);
+            JSONObject json = JSONObject.parseObject(new String(plain, StandardCharsets.UTF_8));
+            return new Entry(json.getString("token"), json.getLongValue("issuedAt"), json.getLongValue("expiresAt"));
+        } catch (Exception e) {
+            // 凭证变更或文件损坏，按未命中处理
+            logger.debug("token缓存不可读: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(FileChannel ch, SecretKeySpec key, byte[] aad, Entry entry) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("token", entry.token);
+        json.put("issuedAt", entry.issuedAt);
+        json.put("expiresAt", entry.expiresAt);
+        byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        byte[] sealed;
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(aad);
+            sealed = cipher.doFinal(json.toJSONString().getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IOException("加密token失败", e);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(1 + IV_BYTES + sealed.length);
+        buf.put(VERSION).put(iv).put(sealed).flip();
+        ch.truncate(0);
+        while (buf.hasRemaining()) ch.write(buf, buf.position());
+        ch.force(false);
+    }
+
+    private static void restrictPermissions(Path file) {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // 非 POSIX 文件系统
+        }
+    }
+}
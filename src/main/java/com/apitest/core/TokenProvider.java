@@ -1,41 +1,335 @@
 package com.apitest.core;
 
-import com.apitest.utils.ConfigManager;
+import com.apitest.utils.EnvConfig;
 import com.apitest.utils.HttpClientUtil;
+import com.apitest.utils.HttpSession;
 import com.alibaba.fastjson.JSONObject;
+import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Token 提供者（线程安全）
+ * 1) 当前 Token 以不可变对象保存在 volatile 字段中，读路径无锁
+ * 2) 单飞刷新：Token 失效时并发调用方共享同一个进行中的刷新请求，只访问一次 tokenUrl
+ * 3) 后台预刷新：到达 refreshAt（有效期过半或过期前 token.refreshAheadMs）时由后台线程刷新，热路径不等待
+ *    调度线程只负责定时触发，获取 Token（含缓存文件锁等待）在 token.fetchThreads 个专用线程上执行，各凭证互不阻塞
+ * 后台刷新失败时继续使用旧 Token 直到过期，并按 token.retryDelayMs 重试；两次后台刷新至少间隔 token.minRefreshMs，
+ * 有效期过短（未返回 expires_in 或不超过 1 分钟）时不做后台刷新，与原实现一样在使用时按需获取
+ * 4) 凭证池：配置 token.credentials 时每组 appKey/appSecret 各自缓存与刷新 Token，
+ *    按 token.assignment 分配：round-robin 逐次轮询；sticky 按虚拟用户（已绑定的 HttpSession，否则当前线程）固定到同一凭证
+ *    未配置时使用 env.yml 当前环境的 UCAppKey/UCAppSecret/tokenUrl
+ *    收到 401 时用 invalidateToken 按请求实际携带的 Token 丢弃，只影响对应凭证
+ * 5) token.cache.enabled=true 时先查本地加密缓存（TokenCache），跨 JVM 复用未过期的 Token
+ */
 public class TokenProvider {
-    private static String cachedToken = null;
-    private static long tokenExpireTime = 0;
+    private static final Logger logger = LogUtil.getLogger(TokenProvider.class);
+
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "token-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ExecutorService FETCHER = newFetcher();
+
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private static class Holder {
+        private static final List<TokenSource> POOL = loadPool();
+        private static final boolean STICKY = "sticky".equalsIgnoreCase(EnvConfig.getString("token.assignment", "round-robin"));
+    }
 
     /**
-     * 获取token，自动读取apiconfig下的appkey/appsecret等配置
+     * 获取token，按分配策略从凭证池中取得
      */
     public static String getToken() {
-        long now = System.currentTimeMillis();
-        if (cachedToken != null && now < tokenExpireTime - 60 * 1000) { // 提前1分钟过期
-            return cachedToken;
+        return select().get();
+    }
+
+    /**
+     * 获取指定名称凭证的token（token.credentials[].name）
+     */
+    public static String getToken(String credential) {
+        if (credential == null || credential.isEmpty()) return getToken();
+        return byName(credential).get();
+    }
+
+    /**
+     * 取得 Authorization 头的值（Bearer 前缀已预先拼接）；credential 为空时按分配策略选择凭证
+     * Token 为空时返回 null，调用方不应写入 Authorization
+     */
+    public static String getAuthorization(String credential) {
+        TokenSource source = credential == null || credential.isEmpty() ? select() : byName(credential);
+        return source.current().header;
+    }
+
+    /**
+     * 丢弃当前虚拟用户所用凭证的 Token（如收到 401），下次 getToken 重新获取
+     * round-robin 分配下无法确定上次请求用的是哪组凭证，丢弃全部凭证的 Token；已知被拒绝的 Token 时应使用 invalidateToken
+     */
+    public static void invalidate() {
+        List<TokenSource> pool = Holder.POOL;
+        if (pool.size() == 1 || Holder.STICKY) {
+            select().invalidate(null);
+            return;
+        }
+        for (TokenSource source : pool) source.invalidate(null);
+    }
+
+    public static void invalidate(String credential) {
+        if (credential == null || credential.isEmpty()) invalidate();
+        else byName(credential).invalidate(null);
+    }
+
+    /**
+     * 按 Token 值丢弃（如收到 401 时取请求实际携带的 Authorization 头），只影响持有该 Token 的凭证；
+     * 支持带 Bearer 前缀的头部值，凭证已换成新 Token 时不做处理
+     */
+    public static void invalidateToken(String token) {
+        if (token == null || token.isEmpty()) return;
+        String value = token.startsWith("Bearer ") ? token.substring("Bearer ".length()) : token;
+        for (TokenSource source : Holder.POOL) source.invalidate(value);
+    }
+
+    public static int poolSize() {
+        return Holder.POOL.size();
+    }
+
+    private static ExecutorService newFetcher() {
+        int threads = Math.max(1, EnvConfig.getInt("token.fetchThreads", 4));
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "token-fetch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static TokenSource select() {
+        List<TokenSource> pool = Holder.POOL;
+        if (pool.size() == 1) return pool.get(0);
+        int key;
+        if (Holder.STICKY) {
+            HttpSession session = HttpSession.current();
+            key = session != null ? System.identityHashCode(session) : Long.hashCode(Thread.currentThread().getId());
+        } else {
+            key = NEXT.getAndIncrement();
         }
-        try {
+        return pool.get(Math.floorMod(key, pool.size()));
+    }
+
+    private static TokenSource byName(String credential) {
+        for (TokenSource source : Holder.POOL) {
+            if (credential.equals(source.name)) return source;
+        }
+        throw new IllegalArgumentException("未配置的token凭证: " + credential);
+    }
+
+    private static List<TokenSource> loadPool() {
+        List<TokenSource> pool = new ArrayList<>();
+        Object list = EnvConfig.get("token.credentials");
+        if (list instanceof List) {
+            String defaultUrl = EnvConfig.getString("tokenUrl", null);
+            for (Object item : (List<?>) list) {
+                if (!(item instanceof Map)) continue;
+                Map<?, ?> m = (Map<?, ?>) item;
+                String appKey = value(m, "appKey");
+                if (appKey == null || appKey.isEmpty()) continue;
+                String name = value(m, "name");
+                String tokenUrl = value(m, "tokenUrl");
+                pool.add(new TokenSource(name == null ? appKey : name, appKey, value(m, "appSecret"),
+                        tokenUrl == null ? defaultUrl : tokenUrl));
+            }
+        }
+        if (pool.isEmpty()) {
+            pool.add(new TokenSource("default", null, null, null));
+        } else {
+            logger.info("token凭证池: {} 组, 分配策略 {}", pool.size(), EnvConfig.getString("token.assignment", "round-robin"));
+        }
+        return Collections.unmodifiableList(pool);
+    }
+
+    private static String value(Map<?, ?> m, String key) {
+        Object v = m.get(key);
+        return v == null ? null : EnvConfig.resolve(String.valueOf(v));
+    }
+
+    private static final class Token {
+        final String value;
+        final String header;
+        /** 提前 1 分钟视为过期 */
+        final long usableUntil;
+        final long refreshAt;
+
+        Token(String value, long usableUntil, long refreshAt) {
+            this.value = value;
+            this.header = value == null || value.isEmpty() ? null : "Bearer " + value;
+            this.usableUntil = usableUntil;
+            this.refreshAt = refreshAt;
+        }
+    }
+
+    static final class TokenSource {
+        private static final AtomicReferenceFieldUpdater<TokenSource, Token> CURRENT =
+                AtomicReferenceFieldUpdater.newUpdater(TokenSource.class, Token.class, "current");
+
+        final String name;
+        /** 为 null 时从 EnvConfig 读取 */
+        private final String appKey;
+        private final String appSecret;
+        private final String tokenUrl;
+        private volatile Token current;
+        /** 最近一次被 invalidate 丢弃的 Token 值，刷新时不再从本地缓存接受它 */
+        private volatile String rejected;
+        private final AtomicReference<CompletableFuture<Token>> inFlight = new AtomicReference<>();
+
+        TokenSource(String name, String appKey, String appSecret, String tokenUrl) {
+            this.name = name;
+            this.appKey = appKey;
+            this.appSecret = appSecret;
+            this.tokenUrl = tokenUrl;
+        }
+
+        String get() {
+            return current().value;
+        }
+
+        Token current() {
+            Token t = current;
+            long now = System.currentTimeMillis();
+            if (t != null && now < t.usableUntil) {
+                // 后台调度未能按时执行时（如调度线程繁忙），由读路径顺带触发一次异步刷新
+                if (now >= t.refreshAt) refreshAsync();
+                return t;
+            }
+            try {
+                return refreshAsync().join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException("获取token失败", cause);
+            }
+        }
+
+        /**
+         * value 为 null 时无条件丢弃，否则仅当当前 Token 为该值时丢弃
+         */
+        void invalidate(String value) {
+            Token t = current;
+            if (t == null || (value != null && !value.equals(t.value))) return;
+            // 期间已刷新为新 Token 时不覆盖
+            if (CURRENT.compareAndSet(this, t, null)) rejected = t.value;
+        }
+
+        /**
+         * 单飞：已有进行中的刷新则复用，否则由本次调用发起
+         */
+        CompletableFuture<Token> refreshAsync() {
+            CompletableFuture<Token> existing = inFlight.get();
+            if (existing != null) return existing;
+            CompletableFuture<Token> mine = new CompletableFuture<>();
+            // 竞争失败后对方的刷新可能已完成并清除标记，此时由本次调用重新发起
+            while (!inFlight.compareAndSet(null, mine)) {
+                existing = inFlight.get();
+                if (existing != null) return existing;
+            }
+            // 先清除进行中的标记再通知等待方：等待方被唤醒后立即再次刷新（如 invalidate 或失败后重试）时不会复用已完成的结果
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Token t = fetch();
+                    current = t;
+                    inFlight.compareAndSet(mine, null);
+                    mine.complete(t);
+                    schedule(t);
+                } catch (Throwable e) {
+                    logger.warn("刷新token失败[{}]: {}", name, e.getMessage());
+                    inFlight.compareAndSet(mine, null);
+                    mine.completeExceptionally(new RuntimeException("获取token失败", e));
+                    // 旧 Token 仍可用时稍后重试，否则等待下一次调用触发
+                    Token old = current;
+                    if (old != null && System.currentTimeMillis() < old.usableUntil) {
+                        REFRESHER.schedule(this::refreshAsync, EnvConfig.getLong("token.retryDelayMs", 5000), TimeUnit.MILLISECONDS);
+                    }
+                }
+            }, FETCHER);
+            return mine;
+        }
+
+        /**
+         * 安排后台预刷新；刷新间隔不短于 token.minRefreshMs
+         * 未返回 expires_in 或有效期不超过 1 分钟的 Token 取得时即已不可用，不安排后台刷新，下次使用时按需获取，
+         * 避免每次获取后立即再次获取、在 JVM 生命周期内持续请求 tokenUrl
+         */
+        private void schedule(Token t) {
+            long now = System.currentTimeMillis();
+            if (now >= t.usableUntil) return;
+            long delay = Math.max(EnvConfig.getLong("token.minRefreshMs", 30000), t.refreshAt - now);
+            // 最短间隔之后 Token 已过期时同样交给按需获取
+            if (now + delay >= t.usableUntil) return;
+            REFRESHER.schedule(() -> {
+                // 期间已被其他刷新替换时不重复刷新
+                if (current == t) refreshAsync();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private Token fetch() throws Exception {
             // 读取配置
-            String appKey = ConfigManager.get("UCAppKey");
-            String appSecret = ConfigManager.get("UCAppSecret");
-            String tokenUrl = ConfigManager.get("tokenUrl"); // 需在apiconfig中配置tokenUrl
+            String appKey = this.appKey != null ? this.appKey : EnvConfig.getString("UCAppKey", null);
+            String appSecret = this.appKey != null ? this.appSecret : EnvConfig.getString("UCAppSecret", null);
+            String tokenUrl = this.tokenUrl != null ? this.tokenUrl : EnvConfig.getString("tokenUrl", null); // 需在env.yml中配置tokenUrl
+            if (tokenUrl == null || tokenUrl.isEmpty()) throw new IllegalStateException("未配置tokenUrl（env.yml 或 token.credentials）");
+            if (!TokenCache.isEnabled()) return toToken(fetchRemote(tokenUrl, appKey, appSecret));
+
+            // 首次获取时接受尚未过期的缓存；预刷新时只接受未到刷新点的缓存（其他 JVM 刚刷新过），避免反复读到同一个旧 Token
+            // 被 invalidate 丢弃后 current 同样为 null，此时缓存中的同一个 Token 已被服务端拒绝，不再接受
+            boolean cold = current == null;
+            String rejected = this.rejected;
+            TokenCache.Entry entry = TokenCache.load(tokenUrl, appKey, appSecret, e -> {
+                if (e.token.equals(rejected)) return false;
+                Token t = toToken(e);
+                long now = System.currentTimeMillis();
+                return cold ? now < t.usableUntil : now < t.refreshAt;
+            }, () -> fetchRemote(tokenUrl, appKey, appSecret));
+            return toToken(entry);
+        }
+
+        private static TokenCache.Entry fetchRemote(String tokenUrl, String appKey, String appSecret) throws Exception {
             // 构造请求体
             JSONObject body = new JSONObject();
             body.put("appKey", appKey);
             body.put("appSecret", appSecret);
 
             // 发起POST请求获取token
+            long now = System.currentTimeMillis();
             String response = HttpClientUtil.sendRequest(tokenUrl, "POST", null, body.toJSONString());
             JSONObject respJson = JSONObject.parseObject(response);
             String token = respJson.getString("access_token");
             long expiresIn = respJson.getLongValue("expires_in"); // 单位秒
-            cachedToken = token;
-            tokenExpireTime = now + expiresIn * 1000;
-            return token;
-        } catch (Exception e) {
-            throw new RuntimeException("获取token失败", e);
+            if (token == null) throw new IllegalStateException("token响应缺少access_token: " + response);
+            return new TokenCache.Entry(token, now, now + expiresIn * 1000);
+        }
+
+        private static Token toToken(TokenCache.Entry e) {
+            long lifetime = e.expiresAt - e.issuedAt;
+            long refreshAhead = EnvConfig.getLong("token.refreshAheadMs", 120000);
+            long refreshAt = e.issuedAt + Math.max(lifetime / 2, lifetime - refreshAhead);
+            return new Token(e.token, e.expiresAt - 60 * 1000, refreshAt);
         }
     }
-}
\ No newline at end of file
+}
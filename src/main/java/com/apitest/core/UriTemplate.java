@@ -0,0 +1,358 @@
+package com.apitest.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RFC 6570 URI 模板（Level 4）
+ * 1) 支持 {var} {+var} {#var} {.var} {/var} {;var} {?var} {&var}，多变量 {?a,b}，前缀 {var:3} 与展开 {list*}
+ * 2) 模板编译一次（字面量预先编码），按模板字符串缓存；展开时只向一个 StringBuilder 追加，不做正则与字符串拼接
+ * 3) 值为 null、空集合、空 Map 视为未定义，按 RFC 省略；集合与 Map 按 RFC 规则展开
+ * 无法解析的表达式（如缺少右括号）按字面量处理
+ */
+public final class UriTemplate {
+    private static final int MAX_CACHED = 4096;
+    private static final ConcurrentMap<String, UriTemplate> CACHE = new ConcurrentHashMap<>();
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** 变量取值 */
+    public interface Variables {
+        Object get(String name);
+
+        /**
+         * 该变量是否按 {+var} 方式展开（保留字符与已有的 %XX 不编码），默认按表达式本身的运算符
+         */
+        default boolean allowReserved(String name) {
+            return false;
+        }
+    }
+
+    private final String template;
+    /** String 为已编码字面量，Expression 为表达式 */
+    private final Object[] parts;
+    private final String[] variableNames;
+    private final int estimatedLength;
+
+    private UriTemplate(String template, Object[] parts, String[] variableNames, int literalLength) {
+        this.template = template;
+        this.parts = parts;
+        this.variableNames = variableNames;
+        this.estimatedLength = literalLength + 16 * variableNames.length;
+    }
+
+    public static UriTemplate compile(String template) {
+        UriTemplate t = CACHE.get(template);
+        if (t != null) return t;
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        t = parse(template);
+        CACHE.putIfAbsent(template, t);
+        return t;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * 模板中出现的全部变量名
+     */
+    public String[] getVariableNames() {
+        return variableNames.clone();
+    }
+
+    public String expand(Map<String, ?> values) {
+        if (values == null) return expand(name -> null);
+        return expand(values::get);
+    }
+
+    public String expand(Variables vars) {
+        return expand(vars, false);
+    }
+
+    /**
+     * 部分展开：表达式中的变量全部未定义时原样保留该表达式（如 {id}），留给其他取值来源再次展开
+     */
+    public String expandPartial(Variables vars) {
+        return expand(vars, true);
+    }
+
+    private String expand(Variables vars, boolean keepUndefined) {
+        StringBuilder sb = new StringBuilder(estimatedLength);
+        for (Object part : parts) {
+            if (part instanceof String) sb.append((String) part);
+            else ((Expression) part).expand(vars, sb, keepUndefined);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    // ========== 编译 ==========
+
+    private static UriTemplate parse(String s) {
+        List<Object> parts = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int literalLength = 0;
+        // 字面量整段编码，使其中已有的 %XX 得以保留
+        int literalStart = 0;
+        int i = 0;
+        while (i < s.length()) {
+            if (s.charAt(i) == '{') {
+                int end = s.indexOf('}', i + 1);
+                Expression expr = end < 0 ? null : Expression.parse(s.substring(i, end + 1));
+                if (expr != null) {
+                    literalLength += addLiteral(parts, s, literalStart, i);
+                    parts.add(expr);
+                    for (VarSpec v : expr.vars) names.add(v.name);
+                    i = end + 1;
+                    literalStart = i;
+                    continue;
+                }
+            }
+            i++;
+        }
+        literalLength += addLiteral(parts, s, literalStart, s.length());
+        return new UriTemplate(s, parts.toArray(), names.toArray(new String[0]), literalLength);
+    }
+
+    private static int addLiteral(List<Object> parts, String s, int from, int to) {
+        if (from >= to) return 0;
+        StringBuilder lit = new StringBuilder(to - from);
+        encode(lit, s, from, to, true);
+        parts.add(lit.toString());
+        return lit.length();
+    }
+
+    private static final class VarSpec {
+        final String name;
+        final int prefix;
+        final boolean explode;
+
+        VarSpec(String name, int prefix, boolean explode) {
+            this.name = name;
+            this.prefix = prefix;
+            this.explode = explode;
+        }
+    }
+
+    private static final class Expression {
+        /** 表达式原文（含花括号） */
+        final String source;
+        final String first;
+        final String sep;
+        final boolean named;
+        final String ifEmpty;
+        final boolean allowReserved;
+        final VarSpec[] vars;
+
+        Expression(String source, char op, VarSpec[] vars) {
+            this.source = source;
+            this.vars = vars;
+            switch (op) {
+                case '+': first = ""; sep = ","; named = false; ifEmpty = ""; allowReserved = true; break;
+                case '#': first = "#"; sep = ","; named = false; ifEmpty = ""; allowReserved = true; break;
+                case '.': first = "."; sep = "."; named = false; ifEmpty = ""; allowReserved = false; break;
+                case '/': first = "/"; sep = "/"; named = false; ifEmpty = ""; allowReserved = false; break;
+                case ';': first = ";"; sep = ";"; named = true; ifEmpty = ""; allowReserved = false; break;
+                case '?': first = "?"; sep = "&"; named = true; ifEmpty = "="; allowReserved = false; break;
+                case '&': first = "&"; sep = "&"; named = true; ifEmpty = "="; allowReserved = false; break;
+                default: first = ""; sep = ","; named = false; ifEmpty = ""; allowReserved = false; break;
+            }
+        }
+
+        static Expression parse(String source) {
+            String body = source.substring(1, source.length() - 1);
+            if (body.isEmpty()) return null;
+            char op = body.charAt(0);
+            String list = "+#./;?&".indexOf(op) >= 0 ? body.substring(1) : body;
+            if ("+#./;?&".indexOf(op) < 0) op = 0;
+            String[] specs = list.split(",", -1);
+            VarSpec[] vars = new VarSpec[specs.length];
+            for (int k = 0; k < specs.length; k++) {
+                String spec = specs[k].trim();
+                boolean explode = spec.endsWith("*");
+                if (explode) spec = spec.substring(0, spec.length() - 1);
+                int prefix = -1;
+                int colon = spec.indexOf(':');
+                if (colon >= 0) {
+                    try {
+                        prefix = Integer.parseInt(spec.substring(colon + 1));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    if (prefix <= 0 || prefix >= 10000) return null;
+                    spec = spec.substring(0, colon);
+                }
+                if (!validName(spec)) return null;
+                vars[k] = new VarSpec(spec, prefix, explode);
+            }
+            return new Expression(source, op, vars);
+        }
+
+        private static boolean validName(String name) {
+            if (name.isEmpty() || name.startsWith(".") || name.endsWith(".")) return false;
+            for (int k = 0; k < name.length(); k++) {
+                char c = name.charAt(k);
+                boolean ok = c == '_' || c == '.' || c == '%' || c == '-'
+                        || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c > 0x7f;
+                if (!ok) return false;
+            }
+            return true;
+        }
+
+        void expand(Variables vars, StringBuilder sb, boolean keepUndefined) {
+            boolean firstDefined = true;
+            for (VarSpec v : this.vars) {
+                Object value = vars.get(v.name);
+                if (isUndefined(value)) continue;
+                sb.append(firstDefined ? first : sep);
+                firstDefined = false;
+                boolean reserved = allowReserved || vars.allowReserved(v.name);
+                if (value instanceof Map) {
+                    expandMap(v, (Map<?, ?>) value, sb, reserved);
+                } else if (value instanceof Collection || value instanceof Object[]) {
+                    expandList(v, value instanceof Object[] ? Arrays.asList((Object[]) value) : (Collection<?>) value, sb, reserved);
+                } else {
+                    String str = String.valueOf(value);
+                    if (named) {
+                        sb.append(v.name);
+                        if (str.isEmpty()) {
+                            sb.append(ifEmpty);
+                            continue;
+                        }
+                        sb.append('=');
+                    }
+                    int end = v.prefix > 0 ? prefixEnd(str, v.prefix) : str.length();
+                    encode(sb, str, 0, end, reserved);
+                }
+            }
+            if (firstDefined && keepUndefined) sb.append(source);
+        }
+
+        private void expandList(VarSpec v, Collection<?> list, StringBuilder sb, boolean reserved) {
+            boolean firstItem = true;
+            if (!v.explode) {
+                if (named) sb.append(v.name).append('=');
+                for (Object item : list) {
+                    if (!firstItem) sb.append(',');
+                    firstItem = false;
+                    appendValue(sb, item, reserved);
+                }
+                return;
+            }
+            for (Object item : list) {
+                if (!firstItem) sb.append(sep);
+                firstItem = false;
+                if (named) {
+                    String str = String.valueOf(item);
+                    sb.append(v.name);
+                    if (str.isEmpty()) {
+                        sb.append(ifEmpty);
+                        continue;
+                    }
+                    sb.append('=');
+                }
+                appendValue(sb, item, reserved);
+            }
+        }
+
+        private void expandMap(VarSpec v, Map<?, ?> map, StringBuilder sb, boolean reserved) {
+            boolean firstItem = true;
+            if (!v.explode) {
+                if (named) sb.append(v.name).append('=');
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    if (!firstItem) sb.append(',');
+                    firstItem = false;
+                    appendValue(sb, e.getKey(), reserved);
+                    sb.append(',');
+                    appendValue(sb, e.getValue(), reserved);
+                }
+                return;
+            }
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                if (!firstItem) sb.append(sep);
+                firstItem = false;
+                appendValue(sb, e.getKey(), reserved);
+                String str = e.getValue() == null ? "" : String.valueOf(e.getValue());
+                if (str.isEmpty() && named) {
+                    sb.append(ifEmpty);
+                } else {
+                    sb.append('=');
+                    encode(sb, str, 0, str.length(), reserved);
+                }
+            }
+        }
+
+        private void appendValue(StringBuilder sb, Object value, boolean reserved) {
+            String str = value == null ? "" : String.valueOf(value);
+            encode(sb, str, 0, str.length(), reserved);
+        }
+    }
+
+    private static boolean isUndefined(Object value) {
+        if (value == null) return true;
+        if (value instanceof Collection) return ((Collection<?>) value).isEmpty();
+        if (value instanceof Map) return ((Map<?, ?>) value).isEmpty();
+        if (value instanceof Object[]) return ((Object[]) value).length == 0;
+        return false;
+    }
+
+    /**
+     * 前缀长度按 Unicode 字符计
+     */
+    private static int prefixEnd(String s, int maxChars) {
+        int count = s.codePointCount(0, s.length());
+        return count <= maxChars ? s.length() : s.offsetByCodePoints(0, maxChars);
+    }
+
+    // ========== 编码 ==========
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isReserved(char c) {
+        return ":/?#[]@!$&'()*+,;=".indexOf(c) >= 0;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * allowReserved 时保留保留字符与已有的 %XX 编码（用于 {+var}、{#var} 与字面量）
+     */
+    private static void encode(StringBuilder sb, String s, int from, int to, boolean allowReserved) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (isUnreserved(c)) {
+                sb.append(c);
+            } else if (allowReserved && isReserved(c)) {
+                sb.append(c);
+            } else if (allowReserved && c == '%' && i + 2 < to && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+                sb.append(c);
+            } else if (c < 0x80) {
+                pct(sb, c);
+            } else {
+                int cp = s.codePointAt(i);
+                int len = Character.charCount(cp);
+                for (byte b : s.substring(i, i + len).getBytes(StandardCharsets.UTF_8)) pct(sb, b & 0xff);
+                i += len - 1;
+            }
+        }
+    }
+
+    private static void pct(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xf]);
+    }
+}
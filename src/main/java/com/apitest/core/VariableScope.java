@@ -0,0 +1,184 @@
+package com.apitest.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层变量作用域：suite → env → module → case → step
+ * 1) 子作用域只引用父作用域与本层 Map，创建时不复制任何数据，适合每次迭代/每个步骤新建
+ * 2) 查找顺序由内向外，按点路径（a.b.c）逐层读取，首个非空值生效
+ * 3) 写入为写时复制：复制本层 Map 后整体替换，不影响并发读取与其他作用域
+ * 4) 子作用域读不到时经父作用域的查找缓存取值；缓存按“作用域代数”失效：任一层写入都会推进全局代数
+ *    缓存只建在被子作用域查询过的（长期存在的）作用域上，逐次迭代新建的叶子作用域没有额外分配
+ * 包装的 Map 若被直接修改（绕过 put），需调用 invalidate() 使缓存失效；
+ * 由外部持有并可能被直接修改的 Map 应通过 liveChild 挂载，该层及其子作用域不建查找缓存，每次查找读取 Map 当前内容
+ */
+public final class VariableScope {
+
+    public enum Level { SUITE, ENV, MODULE, CASE, STEP }
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+    private static final Object MISSING = new Object();
+    private static final VariableScope SUITE = new VariableScope(null, Level.SUITE, null, false);
+
+    private final VariableScope parent;
+    private final Level level;
+    /** 本层及所有祖先层均非 liveChild 时才建查找缓存 */
+    private final boolean cacheable;
+    private volatile Map<String, Object> vars;
+    private volatile long version;
+    /** 从本作用域出发的完整查找结果，首次被子作用域查询时创建 */
+    private volatile Memo memo;
+
+    private static final class Memo {
+        final long generation;
+        final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+
+        Memo(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private VariableScope(VariableScope parent, Level level, Map<String, Object> vars, boolean live) {
+        this.parent = parent;
+        this.level = level;
+        this.vars = vars == null ? Collections.emptyMap() : vars;
+        this.cacheable = !live && (parent == null || parent.cacheable);
+    }
+
+    /**
+     * 全局 suite 作用域（进程内共享，默认为空）
+     */
+    public static VariableScope suite() {
+        return SUITE;
+    }
+
+    /**
+     * 创建子作用域，vars 按引用持有，不复制
+     */
+    public VariableScope child(Level level, Map<String, Object> vars) {
+        return new VariableScope(this, level, vars, false);
+    }
+
+    /**
+     * 创建子作用域，vars 按引用持有且可被外部直接修改：查找总是读取其当前内容，不需要 invalidate()
+     */
+    public VariableScope liveChild(Level level, Map<String, Object> vars) {
+        return new VariableScope(this, level, vars, true);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public VariableScope getParent() {
+        return parent;
+    }
+
+    /**
+     * 按点路径查找变量，找不到返回 null
+     */
+    public Object get(String key) {
+        return lookup(key, splitPath(key));
+    }
+
+    /**
+     * path 为 key 预先切分的结果，供预编译模板复用
+     */
+    public Object lookup(String key, String[] path) {
+        Object v = readPath(vars, path);
+        if (v != null || parent == null) return v;
+        return parent.cacheable ? parent.memoized(key, path) : parent.lookup(key, path);
+    }
+
+    private Object memoized(String key, String[] path) {
+        long g = generation();
+        Memo m = memo;
+        if (m == null || m.generation != g) {
+            m = new Memo(g);
+            memo = m;
+        }
+        Object v = m.values.get(key);
+        if (v == null) {
+            v = lookup(key, path);
+            m.values.put(key, v == null ? MISSING : v);
+            return v;
+        }
+        return v == MISSING ? null : v;
+    }
+
+    /**
+     * 写入本层变量（写时复制）
+     */
+    public synchronized VariableScope put(String key, Object value) {
+        Map<String, Object> copy = new LinkedHashMap<>(vars);
+        copy.put(key, value);
+        vars = copy;
+        version = GENERATION.incrementAndGet();
+        return this;
+    }
+
+    public synchronized VariableScope putAll(Map<String, Object> values) {
+        if (values == null || values.isEmpty()) return this;
+        Map<String, Object> copy = new LinkedHashMap<>(vars);
+        copy.putAll(values);
+        vars = copy;
+        version = GENERATION.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * 本层 Map 被直接修改后调用，使本层及子作用域的查找缓存失效
+     */
+    public void invalidate() {
+        version = GENERATION.incrementAndGet();
+    }
+
+    /**
+     * 本层变量（只读）
+     */
+    public Map<String, Object> getVars() {
+        return Collections.unmodifiableMap(vars);
+    }
+
+    /**
+     * 作用域代数：本层与所有祖先层版本的最大值，任一层写入都会使其增大
+     */
+    private long generation() {
+        long g = version;
+        for (VariableScope p = parent; p != null; p = p.parent) {
+            long v = p.version;
+            if (v > g) g = v;
+        }
+        return g;
+    }
+
+    public static String[] splitPath(String key) {
+        return key.split("\\.");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Object readPath(Map<String, Object> src, String[] path) {
+        if (src == null) return null;
+        Object cur = src;
+        for (String p : path) {
+            if (!(cur instanceof Map)) return null;
+            cur = ((Map<String, Object>) cur).get(p);
+            if (cur == null) return null;
+        }
+        return cur;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("VariableScope[");
+        for (VariableScope s = this; s != null; s = s.parent) {
+            if (s != this) sb.append(" <- ");
+            sb.append(s.level).append('(').append(s.vars.size()).append(')');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -169,8 +169,19 @@ public class SwaggerDataProvider {
             
             responseDetail.put("description", response.getString("description"));
             
-            // 解析响应schema
+            // 解析响应schema（Swagger 2 为 schema，OpenAPI 3 为 content.<mediaType>.schema，优先取 JSON 类型）
             JSONObject schema = response.getJSONObject("schema");
+            JSONObject content = response.getJSONObject("content");
+            if (schema == null && content != null) {
+                for (String mediaType : content.keySet()) {
+                    JSONObject media = content.getJSONObject(mediaType);
+                    if (media == null || media.getJSONObject("schema") == null) continue;
+                    if (schema == null || mediaType.contains("json")) {
+                        schema = media.getJSONObject("schema");
+                        responseDetail.put("mediaType", mediaType);
+                    }
+                }
+            }
             if (schema != null) {
                 Map<String, Object> schemaInfo = parseSchema(schema, openApi);
                 responseDetail.put("schema", schemaInfo);
@@ -198,9 +209,10 @@ public class SwaggerDataProvider {
             // 处理引用
             schemaInfo.put("$ref", ref);
             // 解析引用的定义
-            if (ref.startsWith("#/definitions/")) {
-                String definitionName = ref.substring("#/definitions/".length());
-                JSONObject definitions = openApi.getJSONObject("definitions");
+            if (ref.startsWith("#/definitions/") || ref.startsWith("#/components/schemas/")) {
+                String definitionName = ref.substring(ref.lastIndexOf('/') + 1);
+                JSONObject definitions = ref.startsWith("#/definitions/") ? openApi.getJSONObject("definitions")
+                        : (openApi.getJSONObject("components") == null ? null : openApi.getJSONObject("components").getJSONObject("schemas"));
                 if (definitions != null) {
                     JSONObject definition = definitions.getJSONObject(definitionName);
                     if (definition != null) {
@@ -210,6 +222,9 @@ public class SwaggerDataProvider {
             }
         } else if (type != null) {
             schemaInfo.put("type", type);
+            for (String key : new String[]{"format", "enum", "example", "default"}) {
+                if (schema.containsKey(key)) schemaInfo.put(key, schema.get(key));
+            }
             
             // 处理数组类型
             if ("array".equals(type)) {
@@ -2,6 +2,7 @@ package com.apitest.framework;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
+import com.apitest.core.VariableScope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
@@ -10,8 +11,10 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 测试数据管理器
@@ -26,6 +29,8 @@ public class TestDataManager {
     
     private static final Map<String, Object> configCache = new HashMap<>();
     private static final Map<String, Map<String, Object>> testDataCache = new HashMap<>();
+    private static final Map<String, Map<String, Object>> mergedCache = new ConcurrentHashMap<>();
+    private static final Map<String, VariableScope> scopeCache = new ConcurrentHashMap<>();
     
     private static String currentEnv;
     private static Map<String, Object> environmentConfig;
@@ -231,21 +236,36 @@ public class TestDataManager {
     }
     
     /**
-     * 合并配置和测试数据
+     * 合并配置和测试数据（全局参数 > 测试数据 > 环境配置）
+     * 合并结果按 env/module/testCase 缓存，每次返回新的 HashMap 副本；逐次迭代叠加变量请使用 getScope(...).child(...)
      */
     public static Map<String, Object> mergeConfigAndData(String env, String module, String testCase) {
-        Map<String, Object> merged = new HashMap<>();
-        
-        // 合并环境配置
-        merged.putAll(getEnvironmentConfig(env));
-        
-        // 合并测试数据
-        merged.putAll(getTestData(module, testCase));
-        
-        // 合并全局参数
-        merged.putAll(getGlobalParameters());
-        
-        return merged;
+        return new HashMap<>(mergedCache.computeIfAbsent(env + "|" + module + "|" + testCase, k -> {
+            Map<String, Object> merged = new HashMap<>();
+
+            // 合并环境配置
+            merged.putAll(getEnvironmentConfig(env));
+
+            // 合并测试数据
+            merged.putAll(getTestData(module, testCase));
+
+            // 合并全局参数
+            merged.putAll(getGlobalParameters());
+
+            return Collections.unmodifiableMap(merged);
+        }));
+    }
+
+    /**
+     * 变量作用域链：env(环境配置) → module(测试数据) → 全局参数，各层引用已缓存的数据，不做合并复制
+     * 查找时内层优先，顶层变量的优先级与 mergeConfigAndData 一致（全局参数 > 测试数据 > 环境配置）
+     * 每条数据/每个步骤通过 child(CASE/STEP, vars) 创建子作用域
+     */
+    public static VariableScope getScope(String env, String module, String testCase) {
+        return scopeCache.computeIfAbsent(env + "|" + module + "|" + testCase, k ->
+                VariableScope.suite().child(VariableScope.Level.ENV, getEnvironmentConfig(env))
+                        .child(VariableScope.Level.MODULE, getTestData(module, testCase))
+                        .child(VariableScope.Level.SUITE, getGlobalParameters()));
     }
     
     /**
@@ -0,0 +1,125 @@
+package com.apitest.mock;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 按响应 Schema 生成符合结构的示例数据
+ * 输入为 SwaggerDataProvider.parse 输出中 responses.&lt;status&gt;.schema（已解析的 type/properties/items，
+ * 或 $ref + definition 原始定义）；定义内嵌的 $ref 通过 doc 中的 definitions / components.schemas 解析
+ * 优先使用 example、default、enum 第一个值
+ */
+public class MockResponseGenerator {
+    private static final int MAX_DEPTH = 8;
+
+    private final JSONObject doc;
+
+    public MockResponseGenerator(JSONObject doc) {
+        this.doc = doc;
+    }
+
+    public String generateJson(Map<String, Object> schema) {
+        return JSON.toJSONString(generate(schema, 0));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Object generate(Map<String, Object> schema, int depth) {
+        if (schema == null || depth > MAX_DEPTH) return null;
+        if (schema.containsKey("example")) return schema.get("example");
+        if (schema.containsKey("default")) return schema.get("default");
+        Object enums = schema.get("enum");
+        if (enums instanceof Collection && !((Collection<?>) enums).isEmpty()) return ((Collection<?>) enums).iterator().next();
+
+        Object definition = schema.get("definition");
+        if (definition instanceof Map) return generate((Map<String, Object>) definition, depth + 1);
+        Object ref = schema.get("$ref");
+        if (ref != null) return generate(resolve(String.valueOf(ref)), depth + 1);
+
+        Object allOf = schema.get("allOf");
+        if (allOf instanceof Collection) {
+            Map<String, Object> merged = new LinkedHashMap<>();
+            for (Object part : (Collection<?>) allOf) {
+                Object v = part instanceof Map ? generate((Map<String, Object>) part, depth + 1) : null;
+                if (v instanceof Map) merged.putAll((Map<String, Object>) v);
+            }
+            return merged;
+        }
+        for (String key : new String[]{"oneOf", "anyOf"}) {
+            Object alt = schema.get(key);
+            if (alt instanceof List && !((List<?>) alt).isEmpty() && ((List<?>) alt).get(0) instanceof Map) {
+                return generate((Map<String, Object>) ((List<?>) alt).get(0), depth + 1);
+            }
+        }
+
+        String type = schema.get("type") == null ? (schema.containsKey("properties") ? "object" : "string")
+                : String.valueOf(schema.get("type"));
+        switch (type) {
+            case "object": {
+                Map<String, Object> obj = new LinkedHashMap<>();
+                Object props = schema.get("properties");
+                if (props instanceof Map) {
+                    for (Map.Entry<String, Object> e : ((Map<String, Object>) props).entrySet()) {
+                        if (e.getValue() instanceof Map) obj.put(e.getKey(), generate((Map<String, Object>) e.getValue(), depth + 1));
+                    }
+                }
+                return obj;
+            }
+            case "array": {
+                List<Object> list = new ArrayList<>();
+                Object items = schema.get("items");
+                if (items instanceof Map) list.add(generate((Map<String, Object>) items, depth + 1));
+                return list;
+            }
+            case "integer":
+                return 1;
+            case "number":
+                return 1.0;
+            case "boolean":
+                return true;
+            default:
+                return sampleString(schema.get("format") == null ? null : String.valueOf(schema.get("format")));
+        }
+    }
+
+    private static String sampleString(String format) {
+        if (format == null) return "string";
+        switch (format) {
+            case "date-time":
+                return OffsetDateTime.now().toString();
+            case "date":
+                return LocalDate.now().toString();
+            case "uuid":
+                return UUID.randomUUID().toString();
+            case "email":
+                return "user@example.com";
+            case "uri":
+            case "url":
+                return "https://example.com";
+            case "binary":
+            case "byte":
+                return "";
+            default:
+                return "string";
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> resolve(String ref) {
+        if (doc == null || !ref.startsWith("#/")) return null;
+        Object node = doc;
+        for (String part : ref.substring(2).split("/")) {
+            if (!(node instanceof Map)) return null;
+            node = ((Map<String, Object>) node).get(part);
+        }
+        return node instanceof Map ? (Map<String, Object>) node : null;
+    }
+}
@@ -0,0 +1,557 @@
+package com.apitest.mock;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.apitest.core.LogUtil;
+import com.apitest.data.SwaggerDataProvider;
+import com.apitest.utils.EnvConfig;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 基于 Swagger 文档的内嵌挡板服务（NIO 单选择器线程 + 定时线程池）
+ * 1) 路由：经 SwaggerDataProvider.parse 加载 mock.sources 下的文档，按 method + path（{param} 匹配单段）匹配
+ * 2) 响应：取文档中第一个 2xx 响应的 Schema，由 MockResponseGenerator 预先生成 JSON
+ * 3) 延迟：mock.latency 配置分布（fixed / uniform / normal / lognormal / exponential），由定时线程到点回写，不占用线程等待
+ * 4) 错误：按 mock.errorRate 概率返回 mock.errorStatus
+ * 支持 HTTP/1.1 Keep-Alive 与分块请求体；同一连接上的请求按顺序逐个处理；HEAD 按 GET 路由匹配，只返回响应头
+ */
+public class SwaggerMockServer {
+    private static final Logger logger = LogUtil.getLogger(SwaggerMockServer.class);
+
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final byte[] NOT_FOUND = "{\"code\":404,\"message\":\"mock route not found\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Latency latency;
+    private final double errorRate;
+    private final int errorStatus;
+    private final ScheduledExecutorService scheduler;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread loop;
+    private volatile boolean running;
+
+    public SwaggerMockServer() {
+        this.latency = Latency.fromConfig();
+        this.errorRate = Double.parseDouble(EnvConfig.getString("mock.errorRate", "0"));
+        this.errorStatus = EnvConfig.getInt("mock.errorStatus", 503);
+        AtomicInteger seq = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, EnvConfig.getInt("mock.schedulerThreads", 2)), r -> {
+            Thread t = new Thread(r, "mock-latency-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 按配置加载 mock.sources 并在 mock.port 启动
+     */
+    public static SwaggerMockServer fromConfig() throws Exception {
+        SwaggerMockServer mock = new SwaggerMockServer();
+        Object sources = EnvConfig.get("mock.sources");
+        Collection<?> list = sources instanceof Collection ? (Collection<?>) sources
+                : Collections.singletonList("src/main/resources/swagger");
+        for (Object src : list) mock.load(new File(String.valueOf(src)));
+        return mock.start(EnvConfig.getInt("mock.port", 18080));
+    }
+
+    /**
+     * 加载 Swagger/OpenAPI 文档（文件或目录）
+     */
+    @SuppressWarnings("unchecked")
+    public SwaggerMockServer load(File src) throws Exception {
+        if (src.isDirectory()) {
+            File[] files = src.listFiles((d, n) -> n.endsWith(".json"));
+            if (files != null) for (File f : files) load(f);
+            return this;
+        }
+        JSONObject doc = JSON.parseObject(new String(Files.readAllBytes(src.toPath()), StandardCharsets.UTF_8));
+        MockResponseGenerator generator = new MockResponseGenerator(doc);
+        for (Map<String, Object> api : SwaggerDataProvider.parse(src.getAbsolutePath(), null)) {
+            String path = String.valueOf(api.get("path"));
+            String basePath = doc.getString("basePath");
+            int status = 200;
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            Object responses = api.get("responses");
+            if (responses instanceof Map) {
+                for (Map.Entry<String, Object> e : ((Map<String, Object>) responses).entrySet()) {
+                    if (!e.getKey().startsWith("2") || !(e.getValue() instanceof Map)) continue;
+                    status = Integer.parseInt(e.getKey());
+                    Object schema = ((Map<String, Object>) e.getValue()).get("schema");
+                    if (schema instanceof Map) {
+                        body = generator.generateJson((Map<String, Object>) schema).getBytes(StandardCharsets.UTF_8);
+                    }
+                    break;
+                }
+            }
+            routes.add(new Route(String.valueOf(api.get("method")), (basePath == null ? "" : basePath) + path, status, body));
+        }
+        logger.info("挡板已加载文档: {}，累计路由 {} 条", src, routes.size());
+        return this;
+    }
+
+    public SwaggerMockServer start(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        loop = new Thread(this::runLoop, "mock-selector");
+        loop.setDaemon(true);
+        loop.start();
+        logger.info("Swagger挡板已启动: {}，latency={}, errorRate={}", getBaseUrl(), latency, errorRate);
+        return this;
+    }
+
+    public void stop() {
+        running = false;
+        if (selector != null) selector.wakeup();
+        scheduler.shutdownNow();
+        try {
+            if (loop != null) loop.join(2000);
+            if (server != null) server.close();
+            if (selector != null) selector.close();
+        } catch (IOException | InterruptedException e) {
+            logger.warn("关闭挡板失败: {}", e.getMessage());
+        }
+        logger.info("Swagger挡板已停止: requests={}, errors={}", requests.get(), errors.get());
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    // ========== NIO 事件循环 ==========
+
+    private void runLoop() {
+        while (running) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = pending.poll()) != null) task.run();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) accept();
+                        else {
+                            if (key.isReadable()) read(key);
+                            if (key.isValid() && key.isWritable()) write(key);
+                        }
+                    } catch (IOException e) {
+                        close(key);
+                    }
+                }
+            } catch (IOException e) {
+                if (running) logger.warn("挡板事件循环异常: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            ch.register(selector, SelectionKey.OP_READ, new Conn());
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Conn conn = (Conn) key.attachment();
+        SocketChannel ch = (SocketChannel) key.channel();
+        conn.ensureCapacity();
+        int n = ch.read(conn.in);
+        if (n < 0) {
+            close(key);
+            return;
+        }
+        process(key, conn);
+    }
+
+    /**
+     * 解析缓冲区中的下一个请求：先解析请求头，请求体只计数丢弃不缓存（大文件上传不占内存）
+     * 分块请求体逐块丢弃，读到结束块后才回写响应
+     * 处理中的请求未回写前不解析后续请求，保证同一连接上的响应顺序
+     */
+    private void process(SelectionKey key, Conn conn) throws IOException {
+        if (conn.busy) return;
+        ByteBuffer buf = conn.in;
+        if (conn.response == null) {
+            int headerEnd = indexOf(buf, 0, buf.position());
+            if (headerEnd < 0) {
+                if (buf.position() > MAX_HEADER_BYTES) throw new IOException("请求头过大");
+                return;
+            }
+            String head = new String(buf.array(), 0, headerEnd, StandardCharsets.ISO_8859_1);
+            conn.consume(headerEnd + 4);
+            parseHead(conn, head);
+        }
+        if (conn.chunked) {
+            if (!drainChunked(conn)) return;
+        } else {
+            int discard = (int) Math.min(conn.bodyRemaining, buf.position());
+            conn.consume(discard);
+            conn.bodyRemaining -= discard;
+            if (conn.bodyRemaining > 0) return;
+        }
+
+        byte[] response = conn.response;
+        conn.response = null;
+        conn.busy = true;
+        // 等待回写期间暂停读取，避免后续数据占满缓冲区后空转
+        key.interestOps(0);
+        long delay = latency.sampleMs();
+        Runnable deliver = () -> {
+            conn.out.add(ByteBuffer.wrap(response));
+            if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        };
+        if (delay <= 0) {
+            deliver.run();
+        } else {
+            scheduler.schedule(() -> {
+                pending.add(deliver);
+                selector.wakeup();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 丢弃分块请求体：块大小行（忽略扩展）、块数据与其后的 CRLF，直到 0 块与尾部字段后的空行
+     * 缓冲区中的数据不足一行时返回 false，等待下次读取；读完整个请求体返回 true
+     */
+    private static boolean drainChunked(Conn conn) throws IOException {
+        ByteBuffer buf = conn.in;
+        while (true) {
+            if (conn.bodyRemaining > 0) {
+                int discard = (int) Math.min(conn.bodyRemaining, buf.position());
+                conn.consume(discard);
+                conn.bodyRemaining -= discard;
+                if (conn.bodyRemaining > 0) return false;
+            }
+            int eol = indexOfLineEnd(buf, buf.position());
+            if (eol < 0) {
+                if (buf.position() > MAX_HEADER_BYTES) throw new IOException("分块请求体格式错误：行过长");
+                return false;
+            }
+            String line = new String(buf.array(), 0, eol, StandardCharsets.ISO_8859_1).trim();
+            conn.consume(eol + 2);
+            if (conn.inTrailer) {
+                if (line.isEmpty()) {
+                    conn.chunked = false;
+                    conn.inTrailer = false;
+                    return true;
+                }
+                continue;
+            }
+            int semi = line.indexOf(';');
+            long size;
+            try {
+                size = Long.parseLong((semi >= 0 ? line.substring(0, semi) : line).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("非法分块大小: " + line);
+            }
+            if (size == 0) {
+                conn.inTrailer = true;
+            } else {
+                // 块数据及其后的 CRLF
+                conn.bodyRemaining = size + 2;
+            }
+        }
+    }
+
+    private void parseHead(Conn conn, String head) throws IOException {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length < 2) throw new IOException("非法请求行: " + lines[0]);
+        long contentLength = 0;
+        boolean chunked = false;
+        boolean keepAlive = !lines[0].endsWith("HTTP/1.0");
+        for (int i = 1; i < lines.length; i++) {
+            int c = lines[i].indexOf(':');
+            if (c <= 0) continue;
+            String name = lines[i].substring(0, c).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(c + 1).trim();
+            if ("content-length".equals(name)) {
+                contentLength = Long.parseLong(value);
+            } else if ("connection".equals(name)) {
+                keepAlive = !"close".equalsIgnoreCase(value);
+            } else if ("transfer-encoding".equals(name) && value.toLowerCase(Locale.ROOT).contains("chunked")) {
+                chunked = true;
+            }
+        }
+        requests.incrementAndGet();
+        String method = requestLine[0].toUpperCase(Locale.ROOT);
+        String target = requestLine[1];
+        int q = target.indexOf('?');
+        conn.keepAlive = keepAlive;
+        // 同时出现时以 Transfer-Encoding 为准
+        conn.chunked = chunked;
+        conn.bodyRemaining = chunked ? 0 : contentLength;
+        conn.response = respond(method, q >= 0 ? target.substring(0, q) : target, keepAlive);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Conn conn = (Conn) key.attachment();
+        SocketChannel ch = (SocketChannel) key.channel();
+        while (!conn.out.isEmpty()) {
+            ByteBuffer b = conn.out.peek();
+            ch.write(b);
+            if (b.hasRemaining()) return;
+            conn.out.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        conn.busy = false;
+        if (!conn.keepAlive) {
+            close(key);
+            return;
+        }
+        process(key, conn);
+    }
+
+    private byte[] respond(String method, String path, boolean keepAlive) {
+        boolean head = "HEAD".equals(method);
+        Route route = route(method, path);
+        if (route == null && head) route = route("GET", path);
+        int status;
+        byte[] body;
+        if (route == null) {
+            status = 404;
+            body = NOT_FOUND;
+        } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            status = errorStatus;
+            body = ("{\"code\":" + errorStatus + ",\"message\":\"mock injected error\"}").getBytes(StandardCharsets.UTF_8);
+        } else {
+            status = route.status;
+            body = route.body;
+        }
+        String headers = "HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                + "Content-Type: application/json;charset=UTF-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n";
+        byte[] h = headers.getBytes(StandardCharsets.ISO_8859_1);
+        // HEAD 响应与 GET 的头部一致（含 Content-Length），但不带响应体
+        if (head) return h;
+        byte[] out = new byte[h.length + body.length];
+        System.arraycopy(h, 0, out, 0, h.length);
+        System.arraycopy(body, 0, out, h.length, body.length);
+        return out;
+    }
+
+    private Route route(String method, String path) {
+        for (Route r : routes) {
+            if (r.matches(method, path)) return r;
+        }
+        return null;
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 404: return "Not Found";
+            case 429: return "Too Many Requests";
+            case 500: return "Internal Server Error";
+            case 502: return "Bad Gateway";
+            case 503: return "Service Unavailable";
+            case 504: return "Gateway Timeout";
+            default: return "Status";
+        }
+    }
+
+    private static int indexOfLineEnd(ByteBuffer buf, int to) {
+        byte[] a = buf.array();
+        for (int i = 0; i + 1 < to; i++) {
+            if (a[i] == '\r' && a[i + 1] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(ByteBuffer buf, int from, int to) {
+        byte[] a = buf.array();
+        for (int i = from; i + 3 < to; i++) {
+            if (a[i] == '\r' && a[i + 1] == '\n' && a[i + 2] == '\r' && a[i + 3] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // 连接已关闭
+        }
+    }
+
+    /**
+     * 单个连接的读写状态，只在选择器线程上访问
+     */
+    private static final class Conn {
+        ByteBuffer in = ByteBuffer.allocate(8192);
+        final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        boolean busy;
+        boolean keepAlive = true;
+        long bodyRemaining;
+        /** 当前请求体为分块编码；inTrailer 表示已读到 0 块，正在跳过尾部字段 */
+        boolean chunked;
+        boolean inTrailer;
+        byte[] response;
+
+        void ensureCapacity() {
+            if (in.hasRemaining() || in.capacity() >= MAX_HEADER_BYTES * 2) return;
+            ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+            in.flip();
+            bigger.put(in);
+            in = bigger;
+        }
+
+        void consume(int n) {
+            if (n <= 0) return;
+            in.flip();
+            in.position(n);
+            in.compact();
+        }
+    }
+
+    private static final class Route {
+        final String method;
+        final Pattern path;
+        final int status;
+        final byte[] body;
+
+        Route(String method, String path, int status, byte[] body) {
+            this.method = method.toUpperCase(Locale.ROOT);
+            this.path = Pattern.compile(Pattern.quote(path).replaceAll("\\{[^}/]+}", "\\\\E[^/]+\\\\Q"));
+            this.status = status;
+            this.body = body;
+        }
+
+        boolean matches(String method, String path) {
+            return this.method.equals(method) && this.path.matcher(path).matches();
+        }
+    }
+
+    /**
+     * 延迟分布（毫秒），结果截断到 [minMs, maxMs]
+     */
+    static final class Latency {
+        final String distribution;
+        final double mean;
+        final double stdDev;
+        final double min;
+        final double max;
+
+        Latency(String distribution, double mean, double stdDev, double min, double max) {
+            this.distribution = distribution;
+            this.mean = mean;
+            this.stdDev = stdDev;
+            this.min = min;
+            this.max = max;
+        }
+
+        static Latency fromConfig() {
+            return new Latency(EnvConfig.getString("mock.latency.distribution", "fixed").toLowerCase(Locale.ROOT),
+                    EnvConfig.getInt("mock.latency.meanMs", 0),
+                    EnvConfig.getInt("mock.latency.stdDevMs", 0),
+                    EnvConfig.getInt("mock.latency.minMs", 0),
+                    EnvConfig.getInt("mock.latency.maxMs", 60000));
+        }
+
+        long sampleMs() {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            double v;
+            switch (distribution) {
+                case "uniform":
+                    v = min + r.nextDouble() * (max - min);
+                    break;
+                case "normal":
+                    v = mean + r.nextGaussian() * stdDev;
+                    break;
+                case "lognormal": {
+                    if (mean <= 0) {
+                        v = 0;
+                        break;
+                    }
+                    double sigma2 = Math.log(1 + (stdDev * stdDev) / (mean * mean));
+                    double mu = Math.log(mean) - sigma2 / 2;
+                    v = Math.exp(mu + Math.sqrt(sigma2) * r.nextGaussian());
+                    break;
+                }
+                case "exponential":
+                    v = -mean * Math.log(1 - r.nextDouble());
+                    break;
+                default:
+                    v = mean;
+            }
+            return Math.round(Math.max(min, Math.min(max, v)));
+        }
+
+        @Override
+        public String toString() {
+            return distribution + "(mean=" + mean + ", stdDev=" + stdDev + ", min=" + min + ", max=" + max + ")";
+        }
+    }
+
+    /**
+     * 独立运行：java ... SwaggerMockServer [port]
+     */
+    public static void main(String[] args) throws Exception {
+        SwaggerMockServer mock = new SwaggerMockServer();
+        Object sources = EnvConfig.get("mock.sources");
+        Collection<?> list = sources instanceof Collection ? (Collection<?>) sources
+                : Collections.singletonList("src/main/resources/swagger");
+        for (Object src : list) mock.load(new File(String.valueOf(src)));
+        mock.start(args.length > 0 ? Integer.parseInt(args[0]) : EnvConfig.getInt("mock.port", 18080));
+        Runtime.getRuntime().addShutdownHook(new Thread(mock::stop));
+        Thread.currentThread().join();
+    }
+}
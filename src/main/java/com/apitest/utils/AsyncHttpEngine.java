@@ -0,0 +1,220 @@
+package com.apitest.utils;
+
+import com.apitest.basetestcase.ApiHttpResponse;
+import com.apitest.basetestcase.WireTiming;
+import com.apitest.core.LogUtil;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpCookie;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞 HTTP 引擎（进程内单例）
+ * 基于 JDK java.net.http.HttpClient（NIO 选择器），少量线程即可同时挂起成千上万个请求。
+ * 请求对象沿用 HttpClientUtil 的组装逻辑，再转换为 JDK 请求发送。
+ * 回调线程数可在 apiconfig/env.yml 的 http.async.threads 下配置。
+ * 响应体按 maxCaptureBytes 以阻塞方式流式读取，读取在单独的 http.async.bodyThreads 线程池上进行，
+ * 不占用 HttpClient 投递数据所需的回调线程；同时下载响应体的请求数以该线程数为上限，等待响应头的请求不受限制。
+ * http.transport 为 h2 时协议版本为 HTTP/2，同步请求也经由本引擎发送（见 HttpTransport）。
+ */
+public class AsyncHttpEngine {
+    private static final Logger logger = LogUtil.getLogger(AsyncHttpEngine.class);
+
+    // JDK HttpClient 不允许调用方设置的请求头
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    /** 读取响应体的线程池，与 HttpClient 的回调线程分开，避免读取方阻塞数据投递 */
+    private final ExecutorService bodyExecutor;
+    private final Duration requestTimeout;
+    private final HttpTransport transport;
+
+    private AsyncHttpEngine() {
+        int timeout = EnvConfig.getInt("timeout", 30000);
+        int threads = EnvConfig.getInt("http.async.threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger seq = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "http-async-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        int bodyThreads = Math.max(1, EnvConfig.getInt("http.async.bodyThreads", 64));
+        AtomicInteger bodySeq = new AtomicInteger();
+        ThreadPoolExecutor bodyPool = new ThreadPoolExecutor(bodyThreads, bodyThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "http-async-body-" + bodySeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        bodyPool.allowCoreThreadTimeOut(true);
+        bodyExecutor = bodyPool;
+        requestTimeout = Duration.ofMillis(EnvConfig.getInt("http.socketTimeout", timeout));
+        transport = HttpTransport.current();
+        client = HttpClient.newBuilder()
+                .version(transport.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(EnvConfig.getInt("http.connectTimeout", timeout)))
+                .executor(executor)
+                .build();
+        logger.info("异步HTTP引擎已初始化: threads={}, bodyThreads={}, transport={}", threads, bodyThreads, transport);
+    }
+
+    private static class Holder {
+        private static final AsyncHttpEngine INSTANCE = new AsyncHttpEngine();
+    }
+
+    public static AsyncHttpEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 异步发送请求，返回时请求已发出，调用线程不阻塞等待响应
+     */
+    public CompletableFuture<ApiHttpResponse> send(HttpRequestBase request, long maxCaptureBytes) {
+        HttpRequest jdkRequest;
+        try {
+            jdkRequest = toJdkRequest(request);
+        } catch (Exception e) {
+            CompletableFuture<ApiHttpResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        // 响应头到达即完成，Body 在 bodyExecutor 上按 maxCaptureBytes 流式读取
+        long start = System.nanoTime();
+        long[] headersAt = new long[1];
+        return client.sendAsync(jdkRequest, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(r -> {
+                    headersAt[0] = System.nanoTime();
+                    return r;
+                })
+                .thenApplyAsync(r -> toApiResponse(r, maxCaptureBytes, headersAt[0] - start), bodyExecutor);
+    }
+
+    /**
+     * 同步发送，供 HTTP/2 传输模式下的 HttpClientUtil 使用
+     */
+    public ApiHttpResponse execute(HttpRequestBase request, long maxCaptureBytes) throws Exception {
+        HttpRequest jdkRequest = toJdkRequest(request);
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = client.send(jdkRequest, HttpResponse.BodyHandlers.ofInputStream());
+        return toApiResponse(response, maxCaptureBytes, System.nanoTime() - start);
+    }
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    private HttpRequest toJdkRequest(HttpRequestBase request) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getURI()).timeout(requestTimeout);
+        boolean hasContentType = false;
+        for (Header h : request.getAllHeaders()) {
+            if (RESTRICTED_HEADERS.contains(h.getName().toLowerCase())) continue;
+            if ("content-type".equalsIgnoreCase(h.getName())) hasContentType = true;
+            builder.header(h.getName(), h.getValue());
+        }
+
+        HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.noBody();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity instanceof StreamingMultipartEntity) {
+                // 大文件上传：按需从实体读取，不整体缓冲
+                HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        return entity.getContent();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                long length = entity.getContentLength();
+                publisher = length >= 0 ? HttpRequest.BodyPublishers.fromPublisher(stream, length) : stream;
+            } else if (entity != null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                entity.writeTo(out);
+                publisher = HttpRequest.BodyPublishers.ofByteArray(out.toByteArray());
+            }
+            if (entity != null && !hasContentType && entity.getContentType() != null) {
+                builder.header("Content-Type", entity.getContentType().getValue());
+            }
+        }
+        return builder.method(request.getMethod(), publisher).build();
+    }
+
+    /**
+     * JDK HttpClient 不暴露连接阶段，headersNanos（发出到收到响应头）记为首字节耗时，DNS/建连/TLS/写出记为 -1
+     */
+    private static ApiHttpResponse toApiResponse(HttpResponse<InputStream> response, long maxCaptureBytes, long headersNanos) {
+        Map<String, List<String>> headerMap = new LinkedHashMap<>();
+        response.headers().map().forEach((k, v) -> {
+            if (!k.startsWith(":")) headerMap.put(k, new ArrayList<>(v));
+        });
+
+        Map<String, String> cookieMap = new LinkedHashMap<>();
+        for (String setCookie : response.headers().allValues("set-cookie")) {
+            try {
+                for (HttpCookie c : HttpCookie.parse(setCookie)) {
+                    cookieMap.put(c.getName(), c.getValue());
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("无法解析Set-Cookie: {}", setCookie);
+            }
+        }
+
+        try (InputStream in = response.body()) {
+            String contentEncoding = response.headers().firstValue("content-encoding").orElse(null);
+            long downloadStart = System.nanoTime();
+            ApiHttpResponse result = ApiHttpResponse.capture(response.statusCode(), in, contentEncoding, charsetOf(response), maxCaptureBytes, headerMap, cookieMap);
+            WireTiming timing = result.getTiming();
+            timing.setDnsMs(-1);
+            timing.setConnectMs(-1);
+            timing.setTlsMs(-1);
+            timing.setWriteMs(-1);
+            timing.setTtfbMs(WireTimer.ms(headersNanos));
+            timing.setDownloadMs(WireTimer.ms(System.nanoTime() - downloadStart));
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Charset charsetOf(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("content-type").orElse("");
+        for (String part : contentType.split(";")) {
+            String p = part.trim();
+            if (p.toLowerCase().startsWith("charset=")) {
+                try {
+                    return Charset.forName(p.substring(8).replace("\"", "").trim());
+                } catch (Exception ignored) { }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,62 @@
+package com.apitest.utils;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 带过期时间的 DNS 缓存（进程内单例），供 HttpClientEngine 的连接池使用
+ * 缓存时长由 http.dns.ttlMs 配置；<=0 表示不缓存，直接走系统解析
+ */
+public class CachingDnsResolver implements DnsResolver {
+    public static final CachingDnsResolver INSTANCE = new CachingDnsResolver();
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final long ttlMs;
+
+    private CachingDnsResolver() {
+        this.ttlMs = EnvConfig.getLong("http.dns.ttlMs", 300000);
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long s = System.nanoTime();
+        try {
+            return lookup(host);
+        } finally {
+            WireTimer.add(WireTimer.DNS, System.nanoTime() - s);
+        }
+    }
+
+    private InetAddress[] lookup(String host) throws UnknownHostException {
+        if (ttlMs <= 0) return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        long now = System.currentTimeMillis();
+        Entry e = cache.get(host);
+        if (e != null && e.expireAt > now) return e.addresses;
+        InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        cache.put(host, new Entry(addresses, now + ttlMs));
+        return addresses;
+    }
+
+    public void evict(String host) {
+        cache.remove(host);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static final class Entry {
+        final InetAddress[] addresses;
+        final long expireAt;
+
+        Entry(InetAddress[] addresses, long expireAt) {
+            this.addresses = addresses;
+            this.expireAt = expireAt;
+        }
+    }
+}
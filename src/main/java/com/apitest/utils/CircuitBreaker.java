@@ -0,0 +1,238 @@
+package com.apitest.utils;
+
+import com.apitest.core.LogUtil;
+import com.apitest.report.AllureReportUtil;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按主机的熔断器（CLOSED / OPEN / HALF_OPEN），默认关闭，http.circuit.enabled=true 时启用
+ * 1) CLOSED：统计最近 http.circuit.windowSize 次调用，失败率或慢调用率超过阈值时打开
+ *    失败 = IOException（含超时）；http.circuit.countServerErrors=true 时 5xx 也计为失败
+ *    （默认不计：反向用例有意请求 500 接口时不应使同一主机的后续用例快速失败）；慢调用 = 耗时超过 http.circuit.slowCallMs
+ * 2) OPEN：后续请求直接抛出 CircuitOpenException，不再等待超时；openMs 后转为 HALF_OPEN
+ * 3) HALF_OPEN：放行 halfOpenCalls 次试探请求，全部成功则关闭，否则重新打开
+ * 每次 acquire 返回的 Permit 必须以 record（有结果）或 release（无结果，如被中断、被对冲中止）结束，
+ * 未计入结果的试探名额随 release 归还；只有在 HALF_OPEN 期间取得的名额才算作试探
+ * 状态变化写入日志与 Allure 步骤
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LogUtil.getLogger(CircuitBreaker.class);
+
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * 熔断打开时快速失败抛出；非 IOException，RetryPolicy 不会对其重试
+     */
+    public static class CircuitOpenException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final String host;
+
+        public CircuitOpenException(String host, long retryAfterMs) {
+            super("熔断已打开，快速失败: " + host + "（约 " + retryAfterMs + "ms 后试探恢复）");
+            this.host = host;
+        }
+
+        public String getHost() {
+            return host;
+        }
+    }
+
+    /**
+     * 一次调用的许可；probeEpoch 为取得许可时的半开轮次，非试探调用为 -1
+     */
+    public static final class Permit {
+        private static final Permit CLOSED_CALL = new Permit(-1);
+
+        private final long probeEpoch;
+
+        private Permit(long probeEpoch) {
+            this.probeEpoch = probeEpoch;
+        }
+
+        public boolean isProbe() {
+            return probeEpoch >= 0;
+        }
+    }
+
+    private final String host;
+    private final byte[] outcomes;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final double slowCallRate;
+    private final long slowCallMs;
+    private final long openMs;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int count;
+    private int next;
+    private int failures;
+    private int slows;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    /** 每次进入 HALF_OPEN 加一，用于识别过期的试探许可 */
+    private long halfOpenEpoch;
+
+    private CircuitBreaker(String host) {
+        this(host, EnvConfig.getInt("http.circuit.windowSize", 20), EnvConfig.getInt("http.circuit.minimumCalls", 10),
+                EnvConfig.getInt("http.circuit.failureRatePercent", 50), EnvConfig.getInt("http.circuit.slowCallRatePercent", 100),
+                EnvConfig.getLong("http.circuit.slowCallMs", 10000), EnvConfig.getLong("http.circuit.openMs", 30000),
+                EnvConfig.getInt("http.circuit.halfOpenCalls", 3));
+    }
+
+    CircuitBreaker(String host, int windowSize, int minimumCalls, int failureRatePercent, int slowCallRatePercent,
+                   long slowCallMs, long openMs, int halfOpenCalls) {
+        this.host = host;
+        this.outcomes = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.failureRate = failureRatePercent / 100.0;
+        this.slowCallRate = slowCallRatePercent / 100.0;
+        this.slowCallMs = slowCallMs;
+        this.openMs = openMs;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    private static class Config {
+        private static final boolean ENABLED = EnvConfig.getBoolean("http.circuit.enabled", false);
+        private static final boolean COUNT_SERVER_ERRORS = EnvConfig.getBoolean("http.circuit.countServerErrors", false);
+    }
+
+    public static boolean isEnabled() {
+        return Config.ENABLED;
+    }
+
+    /**
+     * 响应状态码是否计为失败
+     */
+    public static boolean isFailure(int statusCode) {
+        return Config.COUNT_SERVER_ERRORS && statusCode >= 500;
+    }
+
+    public static CircuitBreaker forHost(String host) {
+        return BREAKERS.computeIfAbsent(host, CircuitBreaker::new);
+    }
+
+    /**
+     * 请求前调用；熔断打开时抛出 CircuitOpenException
+     * 返回的许可须在请求结束后交给 record 或 release
+     */
+    public Permit acquire() {
+        State from;
+        State to;
+        Permit permit = Permit.CLOSED_CALL;
+        synchronized (this) {
+            from = state;
+            if (state == State.OPEN) {
+                long elapsed = System.currentTimeMillis() - openedAt;
+                if (elapsed < openMs) throw new CircuitOpenException(host, openMs - elapsed);
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenPermits >= halfOpenCalls) throw new CircuitOpenException(host, 0);
+                halfOpenPermits++;
+                permit = new Permit(halfOpenEpoch);
+            }
+            to = state;
+        }
+        report(from, to);
+        return permit;
+    }
+
+    /**
+     * 请求结束后调用，failed 表示 IOException 或 isFailure(状态码)
+     * 试探许可只在其所属的半开轮次内计数；CLOSED 期间取得的许可只计入 CLOSED 窗口
+     */
+    public void record(Permit permit, boolean failed, long elapsedMs) {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            boolean slow = elapsedMs > slowCallMs;
+            if (permit.isProbe()) {
+                if (state != State.HALF_OPEN || permit.probeEpoch != halfOpenEpoch) return;
+                if (failed || slow) {
+                    transition(State.OPEN);
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                add((byte) ((failed ? FAILURE : 0) | (slow ? SLOW : 0)));
+                if (count >= minimumCalls
+                        && (failures >= failureRate * count || slows >= slowCallRate * count)) {
+                    transition(State.OPEN);
+                }
+            }
+            to = state;
+        }
+        report(from, to);
+    }
+
+    /**
+     * 请求未产生可计入的结果（限流等待被中断、被对冲中止、运行时异常等）时调用，归还试探名额
+     */
+    public synchronized void release(Permit permit) {
+        if (permit.isProbe() && state == State.HALF_OPEN && permit.probeEpoch == halfOpenEpoch && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void add(byte outcome) {
+        if (count == outcomes.length) {
+            byte old = outcomes[next];
+            if ((old & FAILURE) != 0) failures--;
+            if ((old & SLOW) != 0) slows--;
+        } else {
+            count++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        if ((outcome & FAILURE) != 0) failures++;
+        if ((outcome & SLOW) != 0) slows++;
+    }
+
+    private void transition(State to) {
+        if (to == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        if (to == State.HALF_OPEN) {
+            halfOpenEpoch++;
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (to == State.CLOSED) {
+            count = 0;
+            next = 0;
+            failures = 0;
+            slows = 0;
+        }
+        state = to;
+    }
+
+    /**
+     * 在锁外输出状态变化，避免 Allure 写入阻塞其他请求
+     */
+    private void report(State from, State to) {
+        if (from == to) return;
+        String message = "熔断状态变化: " + host + " " + from + " -> " + to;
+        logger.warn(message);
+        try {
+            AllureReportUtil.logStep(message);
+        } catch (Throwable ignored) {
+            // 不在 Allure 生命周期内时忽略
+        }
+    }
+}
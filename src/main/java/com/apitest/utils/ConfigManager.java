@@ -1,26 +1,21 @@
 package com.apitest.utils;
 
-import org.yaml.snakeyaml.Yaml;
-import java.io.InputStream;
 import java.util.Map;
 
+/**
+ * 旧的扁平配置读取入口，保留以兼容既有调用
+ * 配置统一由 EnvConfig 加载：file_cases.yaml（可选）为最底层，apiconfig/env.yml 的 common 段与当前环境段依次覆盖
+ */
 public class ConfigManager {
-    private static Map<String, Object> config;
-
-    static {
-        try (InputStream in = ConfigManager.class.getClassLoader().getResourceAsStream("file_cases.yaml")) {
-            Yaml yaml = new Yaml();
-            config = yaml.load(in);
-        } catch (Exception e) {
-            throw new RuntimeException("读取file_cases.yaml失败", e);
-        }
-    }
 
     public static String get(String key) {
-        return config.get(key).toString();
+        Object v = EnvConfig.config().get(key);
+        if (v == null) v = EnvConfig.get(key);
+        if (v == null) throw new IllegalArgumentException("未配置: " + key);
+        return v instanceof String ? EnvConfig.resolve((String) v) : v.toString();
     }
 
     public static Map<String, Object> getConfig() {
-        return config;
+        return EnvConfig.config();
     }
-} 
\ No newline at end of file
+}
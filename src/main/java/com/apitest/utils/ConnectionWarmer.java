@@ -0,0 +1,208 @@
+package com.apitest.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.apitest.core.LogUtil;
+import com.apitest.data.PostmanDataProvider;
+import com.apitest.report.AllureReportUtil;
+import org.apache.http.HttpHost;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 套件启动时的连接预热
+ * 1) 收集主机：env.yml 中所有 http(s) 地址，以及 warmup.sources 下的 Swagger/Postman 文档
+ * 2) 每个主机：解析 DNS（写入 CachingDnsResolver），并建立 warmup.connectionsPerHost 条连接放入连接池
+ *    各主机在 warmup.threads 个线程上并行预热，建连超时取 warmup.connectTimeoutMs；整体最多等待 warmup.timeoutMs，
+ *    未完成的主机记为超时，不阻塞套件启动
+ * 3) 预热耗时单独记录到日志与 Allure 附件，不计入用例耗时
+ * 4) http.transport=h2 时请求经 AsyncHttpEngine（JDK HttpClient）发送，不使用 Apache 连接池，只预解析 DNS，跳过建连
+ * 默认关闭（warmup.enabled）
+ */
+public class ConnectionWarmer {
+    private static final Logger logger = LogUtil.getLogger(ConnectionWarmer.class);
+
+    private static volatile boolean done;
+
+    /**
+     * 单个主机的预热结果；预热线程写入，调用方只在该主机完成后读取（超时的主机返回单独的快照）
+     */
+    public static class HostTiming {
+        public volatile String host;
+        public volatile long dnsMs;
+        public volatile long connectMs;
+        public volatile int connections;
+        public volatile String error;
+
+        static HostTiming failed(String host, String error) {
+            HostTiming t = new HostTiming();
+            t.host = host;
+            t.error = error;
+            return t;
+        }
+
+        @Override
+        public String toString() {
+            return host + " dns=" + dnsMs + "ms connect=" + connectMs + "ms connections=" + connections
+                    + (error == null ? "" : " error=" + error);
+        }
+    }
+
+    /**
+     * 按配置执行一次预热；重复调用直接返回
+     */
+    public static synchronized List<HostTiming> warmUp() {
+        if (done || !EnvConfig.getBoolean("warmup.enabled", false)) return new ArrayList<>();
+        done = true;
+        Set<HttpHost> hosts = new LinkedHashSet<>();
+        collectConfigHosts(EnvConfig.config(), hosts);
+        Object sources = EnvConfig.get("warmup.sources");
+        if (sources instanceof Collection) {
+            for (Object src : (Collection<?>) sources) collectSourceHosts(new File(String.valueOf(src)), hosts);
+        }
+        return warmUp(hosts, EnvConfig.getInt("warmup.connectionsPerHost", 2));
+    }
+
+    public static List<HostTiming> warmUp(Collection<HttpHost> hosts, int connectionsPerHost) {
+        List<HostTiming> timings = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        if (hosts.isEmpty()) return timings;
+        int connectTimeout = EnvConfig.getInt("warmup.connectTimeoutMs", 2000);
+        boolean connect = !HttpTransport.current().isHttp2();
+        if (!connect) logger.info("http.transport=h2：请求不经 Apache 连接池，只预解析 DNS，跳过连接预热");
+        long deadline = start + EnvConfig.getLong("warmup.timeoutMs", 5000);
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(hosts.size(), Math.max(1, EnvConfig.getInt("warmup.threads", 8))), r -> {
+            Thread th = new Thread(r, "connection-warmer-" + seq.incrementAndGet());
+            th.setDaemon(true);
+            return th;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (HttpHost host : hosts) {
+                HostTiming t = new HostTiming();
+                t.host = host.toURI();
+                timings.add(t);
+                futures.add(pool.submit(() -> warmUpHost(host, connect ? connectionsPerHost : 0, connectTimeout, t)));
+            }
+            boolean interrupted = false;
+            for (int i = 0; i < futures.size(); i++) {
+                String host = timings.get(i).host;
+                if (interrupted) {
+                    timings.set(i, HostTiming.failed(host, "interrupted"));
+                    continue;
+                }
+                try {
+                    futures.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // 预热线程仍可能写入原对象，返回不再变化的快照
+                    timings.set(i, HostTiming.failed(host, "timeout"));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    timings.set(i, HostTiming.failed(host, "interrupted"));
+                } catch (ExecutionException e) {
+                    timings.get(i).error = String.valueOf(e.getCause());
+                }
+            }
+        } finally {
+            // 超时的主机继续在守护线程上完成或失败，不再等待
+            pool.shutdown();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (!connect) sb.append("transport=h2，仅预解析 DNS\n");
+        for (HostTiming t : timings) sb.append(t).append("\n");
+        sb.append("total=").append(System.currentTimeMillis() - start).append("ms");
+        logger.info("连接预热完成:\n{}", sb);
+        try {
+            AllureReportUtil.attach("连接预热", sb.toString());
+        } catch (Throwable ignored) {
+            // 不在 Allure 生命周期内时忽略
+        }
+        return timings;
+    }
+
+    private static void warmUpHost(HttpHost host, int connectionsPerHost, int connectTimeout, HostTiming t) {
+        try {
+            long s = System.nanoTime();
+            CachingDnsResolver.INSTANCE.resolve(host.getHostName());
+            t.dnsMs = (System.nanoTime() - s) / 1_000_000;
+            if (connectionsPerHost <= 0) return;
+            s = System.nanoTime();
+            t.connections = HttpClientEngine.getInstance().warmUp(host, connectionsPerHost, connectTimeout);
+            t.connectMs = (System.nanoTime() - s) / 1_000_000;
+        } catch (Exception e) {
+            t.error = e.getMessage();
+        }
+    }
+
+    private static void collectConfigHosts(Object node, Set<HttpHost> hosts) {
+        if (node instanceof Map) {
+            for (Object v : ((Map<?, ?>) node).values()) collectConfigHosts(v, hosts);
+        } else if (node instanceof Collection) {
+            for (Object v : (Collection<?>) node) collectConfigHosts(v, hosts);
+        } else if (node instanceof String) {
+            addUrl(EnvConfig.resolve((String) node), hosts);
+        }
+    }
+
+    private static void collectSourceHosts(File src, Set<HttpHost> hosts) {
+        if (src.isDirectory()) {
+            File[] files = src.listFiles((d, n) -> n.endsWith(".json"));
+            if (files != null) for (File f : files) collectSourceHosts(f, hosts);
+            return;
+        }
+        if (!src.isFile()) return;
+        try {
+            JSONObject doc = JSON.parseObject(new String(Files.readAllBytes(src.toPath()), StandardCharsets.UTF_8));
+            if (doc == null) return;
+            if (doc.containsKey("item")) {
+                for (Map<String, Object> c : PostmanDataProvider.parse(src.getAbsolutePath(), null)) {
+                    addUrl(c.get("url") == null ? null : String.valueOf(c.get("url")), hosts);
+                }
+            } else if (doc.containsKey("servers")) {
+                JSONArray servers = doc.getJSONArray("servers");
+                for (int i = 0; i < servers.size(); i++) addUrl(servers.getJSONObject(i).getString("url"), hosts);
+            } else if (doc.containsKey("host")) {
+                JSONArray schemes = doc.getJSONArray("schemes");
+                String scheme = schemes == null || schemes.isEmpty() ? "https" : schemes.getString(0);
+                addUrl(scheme + "://" + doc.getString("host"), hosts);
+            }
+        } catch (Exception e) {
+            logger.warn("解析预热来源失败: {} -> {}", src, e.getMessage());
+        }
+    }
+
+    private static void addUrl(String url, Set<HttpHost> hosts) {
+        if (url == null) return;
+        String u = url.trim();
+        if (!(u.startsWith("http://") || u.startsWith("https://")) || u.contains("{")) return;
+        try {
+            URI uri = URI.create(u);
+            if (uri.getHost() == null) return;
+            int port = uri.getPort() > 0 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+            hosts.add(new HttpHost(uri.getHost(), port, uri.getScheme()));
+        } catch (IllegalArgumentException ignored) {
+            // 非法 URL 跳过
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.apitest.utils;
+
+import org.apache.http.client.entity.DeflateInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 响应压缩协商与流式解压
+ * 1) 请求头 Accept-Encoding 由 http.compression.encodings 决定（gzip、deflate，br 需 classpath 中存在 org.brotli:dec）
+ * 2) 按响应头 Content-Encoding 包装解压流，解压在读取 Body 时逐块完成，不整体缓冲压缩数据
+ * 3) 解压流在首次读取时才创建：空响应体直接视为结束，不因读取 gzip 等格式头失败而抛出 EOFException
+ */
+public class ContentEncodingUtil {
+    private static final String BROTLI_CLASS = "org.brotli.dec.BrotliInputStream";
+
+    private static volatile String acceptEncoding;
+    private static volatile Constructor<?> brotliConstructor;
+    private static volatile boolean brotliChecked;
+
+    /**
+     * 请求应携带的 Accept-Encoding；未启用压缩时返回 null
+     */
+    public static String acceptEncoding() {
+        String v = acceptEncoding;
+        if (v == null) {
+            if (!EnvConfig.getBoolean("http.compression.enabled", true)) {
+                v = "";
+            } else {
+                List<String> supported = new ArrayList<>();
+                for (String e : EnvConfig.getString("http.compression.encodings", "gzip,deflate,br").split(",")) {
+                    String enc = e.trim().toLowerCase();
+                    if (enc.isEmpty() || ("br".equals(enc) && brotli() == null)) continue;
+                    supported.add(enc);
+                }
+                v = String.join(", ", supported);
+            }
+            acceptEncoding = v;
+        }
+        return v.isEmpty() ? null : v;
+    }
+
+    /**
+     * 按 Content-Encoding 包装解压流；identity 或未知编码原样返回
+     */
+    public static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (in == null || contentEncoding == null) return in;
+        return new LazyDecodingStream(in, contentEncoding);
+    }
+
+    /**
+     * decode 是否会完整解压该编码（至少一层 gzip/deflate/br 且没有无法解压的编码）；为 true 时响应头中的
+     * Content-Encoding/Content-Length 描述的是压缩数据，不再适用于解压后的 Body
+     */
+    public static boolean decodes(String contentEncoding) {
+        if (contentEncoding == null) return false;
+        boolean any = false;
+        for (String c : contentEncoding.split(",")) {
+            String coding = c.trim().toLowerCase();
+            switch (coding) {
+                case "gzip":
+                case "x-gzip":
+                case "deflate":
+                    any = true;
+                    break;
+                case "br":
+                    if (brotli() == null) return false;
+                    any = true;
+                    break;
+                case "":
+                case "identity":
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return any;
+    }
+
+    private static InputStream wrap(InputStream in, String contentEncoding) throws IOException {
+        InputStream out = in;
+        // 多重编码按出现顺序的逆序解码
+        String[] codings = contentEncoding.split(",");
+        for (int i = codings.length - 1; i >= 0; i--) {
+            String coding = codings[i].trim().toLowerCase();
+            switch (coding) {
+                case "gzip":
+                case "x-gzip":
+                    out = new GZIPInputStream(out, 8192);
+                    break;
+                case "deflate":
+                    out = new DeflateInputStream(out);
+                    break;
+                case "br":
+                    Constructor<?> c = brotli();
+                    if (c == null) return out;
+                    try {
+                        out = (InputStream) c.newInstance(out);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IOException("Brotli解压失败", e);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 首次读取时先探测是否有数据，有数据才创建解压流
+     */
+    private static final class LazyDecodingStream extends InputStream {
+        private final PushbackInputStream raw;
+        private final String contentEncoding;
+        private InputStream decoded;
+
+        LazyDecodingStream(InputStream in, String contentEncoding) {
+            this.raw = new PushbackInputStream(in, 1);
+            this.contentEncoding = contentEncoding;
+        }
+
+        private InputStream delegate() throws IOException {
+            if (decoded == null) {
+                int b = raw.read();
+                if (b < 0) {
+                    decoded = raw;
+                } else {
+                    raw.unread(b);
+                    decoded = wrap(raw, contentEncoding);
+                }
+            }
+            return decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoded == null ? 0 : decoded.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decoded != null) decoded.close();
+            else raw.close();
+        }
+    }
+
+    private static Constructor<?> brotli() {
+        if (!brotliChecked) {
+            try {
+                brotliConstructor = Class.forName(BROTLI_CLASS).getConstructor(InputStream.class);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                brotliConstructor = null;
+            }
+            brotliChecked = true;
+        }
+        return brotliConstructor;
+    }
+}
@@ -0,0 +1,167 @@
+package com.apitest.utils;
+
+import com.apitest.core.LogUtil;
+import org.apache.logging.log4j.Logger;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * apiconfig/env.yml 读取工具，也是 com.apitest 下唯一的全局配置入口（ConfigManager 委托到这里）
+ * 1) common 段为公共配置，当前环境段（dev/test/prod/local）覆盖 common 中的同名键
+ *    旧的扁平配置 file_cases.yaml 若存在则作为最底层，env.yml 中未定义的键才取它的值
+ * 2) 当前环境取自 -Denv=xxx 或环境变量 API_ENV，默认 dev
+ * 3) 字符串值支持 ${NAME:default} 占位，按 系统属性 -> 环境变量 -> 默认值 解析
+ */
+public class EnvConfig {
+    private static final Logger logger = LogUtil.getLogger(EnvConfig.class);
+
+    private static final String ENV_FILE = "apiconfig/env.yml";
+    private static final String LEGACY_FILE = "file_cases.yaml";
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}:]+)(?::([^}]*))?\\}");
+
+    private static volatile Map<String, Object> merged;
+
+    public static String currentEnv() {
+        String env = System.getProperty("env");
+        if (env == null || env.trim().isEmpty()) env = System.getenv("API_ENV");
+        return env == null || env.trim().isEmpty() ? "dev" : env.trim();
+    }
+
+    /**
+     * 按点路径读取配置，如 http.pool.maxTotal
+     */
+    public static Object get(String path) {
+        Object cur = config();
+        for (String p : path.split("\\.")) {
+            if (!(cur instanceof Map)) return null;
+            cur = ((Map<?, ?>) cur).get(p);
+            if (cur == null) return null;
+        }
+        return cur instanceof String ? resolve((String) cur) : cur;
+    }
+
+    public static String getString(String path, String def) {
+        Object v = get(path);
+        return v == null ? def : String.valueOf(v);
+    }
+
+    public static int getInt(String path, int def) {
+        Object v = get(path);
+        if (v instanceof Number) return ((Number) v).intValue();
+        try {
+            return v == null ? def : Integer.parseInt(String.valueOf(v).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public static long getLong(String path, long def) {
+        Object v = get(path);
+        if (v instanceof Number) return ((Number) v).longValue();
+        try {
+            return v == null ? def : Long.parseLong(String.valueOf(v).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public static boolean getBoolean(String path, boolean def) {
+        Object v = get(path);
+        return v == null ? def : Boolean.parseBoolean(String.valueOf(v).trim());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> getMap(String path) {
+        Object v = get(path);
+        return v instanceof Map ? (Map<String, Object>) v : Collections.emptyMap();
+    }
+
+    /**
+     * 解析 ${NAME:default} 占位
+     */
+    public static String resolve(String value) {
+        if (value == null || value.indexOf("${") < 0) return value;
+        Matcher m = PLACEHOLDER.matcher(value);
+        StringBuilder sb = new StringBuilder();
+        int last = 0;
+        while (m.find()) {
+            sb.append(value, last, m.start());
+            String name = m.group(1).trim();
+            String v = System.getProperty(name);
+            if (v == null) v = System.getenv(name);
+            if (v == null) v = m.group(2) == null ? "" : m.group(2);
+            sb.append(v);
+            last = m.end();
+        }
+        sb.append(value, last, value.length());
+        return sb.toString();
+    }
+
+    public static Map<String, Object> config() {
+        Map<String, Object> c = merged;
+        if (c == null) {
+            synchronized (EnvConfig.class) {
+                c = merged;
+                if (c == null) {
+                    c = load(currentEnv());
+                    merged = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> load(String env) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        Map<String, Object> legacy = readYaml(LEGACY_FILE);
+        if (legacy != null) {
+            deepMerge(out, legacy);
+            logger.info("已加载旧配置 {}，env.yml 中的同名键优先", LEGACY_FILE);
+        }
+        Map<String, Object> all = readYaml(ENV_FILE);
+        if (all == null) {
+            logger.warn("未找到环境配置文件: {}", ENV_FILE);
+            return out;
+        }
+        if (all.get("common") instanceof Map) deepMerge(out, (Map<String, Object>) all.get("common"));
+        if (all.get(env) instanceof Map) deepMerge(out, (Map<String, Object>) all.get(env));
+        logger.info("已加载环境配置: {} -> {} keys", env, out.size());
+        return out;
+    }
+
+    /**
+     * 读取 classpath 下的 YAML，文件不存在或内容不是 Map 时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readYaml(String resource) {
+        try (InputStream in = EnvConfig.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) return null;
+            Object obj = new Yaml().load(in);
+            return obj instanceof Map ? (Map<String, Object>) obj : null;
+        } catch (Exception e) {
+            logger.warn("加载配置失败: {} -> {}", resource, e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void deepMerge(Map<String, Object> target, Map<String, Object> src) {
+        for (Map.Entry<String, Object> e : src.entrySet()) {
+            Object old = target.get(e.getKey());
+            if (old instanceof Map && e.getValue() instanceof Map) {
+                Map<String, Object> copy = new LinkedHashMap<>((Map<String, Object>) old);
+                deepMerge(copy, (Map<String, Object>) e.getValue());
+                target.put(e.getKey(), copy);
+            } else {
+                target.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+}
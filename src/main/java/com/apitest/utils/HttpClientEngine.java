@@ -0,0 +1,174 @@
+package com.apitest.utils;
+
+import com.apitest.core.LogUtil;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长连接 HTTP 客户端引擎（进程内单例）
+ * 1) 连接池：总连接数、单路由连接数均可在 apiconfig/env.yml 的 http.pool 下配置
+ * 2) Keep-Alive：优先使用服务端 Keep-Alive: timeout=N，否则使用 http.pool.keepAliveMs
+ * 3) 后台线程定期清理过期与空闲连接
+ * 4) DNS 解析经 CachingDnsResolver 缓存；warmUp 可预先建立连接放入连接池
+ * 5) 套接字工厂与请求执行器经 WireTimer 记录建连、TLS、写出与首字节耗时
+ * 各请求的 Cookie 通过 HttpClientContext 隔离，不共享客户端级 CookieStore
+ * 关闭客户端自带的解压，响应 Body 由 ApiHttpResponse.capture 流式解压
+ */
+public class HttpClientEngine {
+    private static final Logger logger = LogUtil.getLogger(HttpClientEngine.class);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+
+    private HttpClientEngine() {
+        int maxTotal = EnvConfig.getInt("http.pool.maxTotal", 200);
+        int maxPerRoute = EnvConfig.getInt("http.pool.maxPerRoute", 50);
+        long keepAliveMs = EnvConfig.getLong("http.pool.keepAliveMs", 30000);
+        long idleEvictMs = EnvConfig.getLong("http.pool.idleEvictMs", 60000);
+        int validateAfterInactivityMs = EnvConfig.getInt("http.pool.validateAfterInactivityMs", 2000);
+        int timeout = EnvConfig.getInt("timeout", 30000);
+
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new WireTimer.TimedPlainSocketFactory())
+                .register("https", new WireTimer.TimedSslSocketFactory(SSLContexts.createDefault()))
+                .build();
+        connectionManager = new PoolingHttpClientConnectionManager(registry, null, null,
+                CachingDnsResolver.INSTANCE, -1, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(EnvConfig.getInt("http.connectTimeout", timeout))
+                .setSocketTimeout(EnvConfig.getInt("http.socketTimeout", timeout))
+                .setConnectionRequestTimeout(EnvConfig.getInt("http.poolTimeout", timeout))
+                .build();
+
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(keepAliveMs))
+                .setRequestExecutor(new WireTimer.TimedRequestExecutor())
+                // 压缩协商与解压由 HttpClientUtil/ContentEncodingUtil 处理，以便统计传输字节数
+                .disableContentCompression()
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        logger.info("HTTP连接池已初始化: maxTotal={}, maxPerRoute={}, keepAlive={}ms, idleEvict={}ms",
+                maxTotal, maxPerRoute, keepAliveMs, idleEvictMs);
+    }
+
+    private static class Holder {
+        private static final HttpClientEngine INSTANCE = create();
+
+        private static HttpClientEngine create() {
+            HttpClientEngine engine = new HttpClientEngine();
+            Runtime.getRuntime().addShutdownHook(new Thread(engine::shutdown, "http-engine-shutdown"));
+            return engine;
+        }
+    }
+
+    public static HttpClientEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 执行请求；调用方负责关闭响应（消费完实体后连接自动归还连接池）
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpClientContext context) throws IOException {
+        return client.execute(request, context);
+    }
+
+    /**
+     * 预先建立到目标主机的 count 条连接（含 TCP 握手与 TLS 握手）并放回连接池，返回成功建立的连接数
+     */
+    public int warmUp(HttpHost target, int count) {
+        return warmUp(target, count, EnvConfig.getInt("http.connectTimeout", EnvConfig.getInt("timeout", 30000)));
+    }
+
+    /**
+     * 同 warmUp(target, count)，建连与等待连接池均以 connectTimeout 为上限
+     */
+    public int warmUp(HttpHost target, int count, int connectTimeout) {
+        HttpHost host = target.getPort() > 0 ? target
+                : new HttpHost(target.getHostName(), "https".equalsIgnoreCase(target.getSchemeName()) ? 443 : 80, target.getSchemeName());
+        HttpRoute route = new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName()));
+        List<HttpClientConnection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                HttpClientConnection conn = null;
+                try {
+                    conn = connectionManager.requestConnection(route, null).get(connectTimeout, TimeUnit.MILLISECONDS);
+                    if (!conn.isOpen()) {
+                        HttpClientContext context = HttpClientContext.create();
+                        connectionManager.connect(conn, route, connectTimeout, context);
+                        connectionManager.routeComplete(conn, route, context);
+                    }
+                    opened.add(conn);
+                } catch (Exception e) {
+                    if (conn != null) connectionManager.releaseConnection(conn, null, 0, TimeUnit.MILLISECONDS);
+                    logger.warn("预热连接失败: {} -> {}", host, e.getMessage());
+                    break;
+                }
+            }
+        } finally {
+            long keepAliveMs = EnvConfig.getLong("http.pool.keepAliveMs", 30000);
+            for (HttpClientConnection conn : opened) {
+                connectionManager.releaseConnection(conn, null, keepAliveMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        return opened.size();
+    }
+
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    public void shutdown() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            logger.warn("关闭HTTP客户端失败: {}", e.getMessage());
+        }
+    }
+
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long defaultKeepAliveMs) {
+        return (response, context) -> {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement he = it.nextElement();
+                if ("timeout".equalsIgnoreCase(he.getName()) && he.getValue() != null) {
+                    try {
+                        return Long.parseLong(he.getValue()) * 1000;
+                    } catch (NumberFormatException ignored) { }
+                }
+            }
+            return defaultKeepAliveMs;
+        };
+    }
+}
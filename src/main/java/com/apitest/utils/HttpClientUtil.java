@@ -9,7 +9,7 @@ import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
-import org.apache.http.HttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.CookieStore;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.cookie.Cookie;
@@ -17,15 +17,32 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.mime.content.FileBody;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.nio.charset.StandardCharsets;
 
 import com.apitest.basetestcase.ApiHttpResponse;
+import com.apitest.core.LogUtil;
+import org.apache.logging.log4j.Logger;
 
 /**
  * HTTP请求工具类，支持GET/POST/PUT/DELETE/PATCH，多种Body模式
+ * 所有请求经由 HttpClientEngine 的共享连接池发送；http.transport 为 h2 时改由 AsyncHttpEngine 以 HTTP/2 发送
+ * 发送前经 RetryPolicy 处理重试与对冲，每次尝试经 CircuitBreaker 按主机熔断、经 RateLimiter 限流
+ * 当前线程绑定 HttpSession 时共享其 Cookie 与会话请求头
+ * http.vcr.mode 为 record/replay 时经 VcrCassette 录制或回放
  */
 public class HttpClientUtil {
+    private static final Logger logger = LogUtil.getLogger(HttpClientUtil.class);
+    private static final ThreadLocal<Long> MAX_CAPTURE_BYTES = new ThreadLocal<>();
+
     public static String sendRequest(String url, String method, Map<String, String> headers, String body) throws Exception {
         ApiHttpResponse resp = sendRequestWithMeta(url, method, headers, body);
         return resp.getBody();
@@ -39,55 +56,431 @@ public class HttpClientUtil {
                                                               Map<String, String> headers,
                                                               String body,
                                                               Map<String, Object> bodyParameters) throws Exception {
-        CookieStore cookieStore = new BasicCookieStore();
-        CloseableHttpClient client = HttpClients.custom().setDefaultCookieStore(cookieStore).build();
-        String httpMethod = method == null ? "GET" : method.toUpperCase();
+        return sendRequestWithMetaAdvanced(url, HttpMethod.of(method), headers, body, bodyParameters);
+    }
+
+    public static ApiHttpResponse sendRequestWithMetaAdvanced(String url, HttpMethod method,
+                                                              Map<String, String> headers,
+                                                              String body,
+                                                              Map<String, Object> bodyParameters) throws Exception {
+        return sendRequestWithMetaAdvanced(url, method, headers, body, bodyParameters, null);
+    }
+
+    /**
+     * headerSupplier 不为 null 时，重试与对冲的每次尝试改用其重新生成的请求头（见 ApiRequestModel.getHeaderSupplier）
+     */
+    public static ApiHttpResponse sendRequestWithMetaAdvanced(String url, HttpMethod method,
+                                                              Map<String, String> headers,
+                                                              String body,
+                                                              Map<String, Object> bodyParameters,
+                                                              Supplier<Map<String, String>> headerSupplier) throws Exception {
+        // 与字符串重载一致：未指定方法按 GET 处理
+        if (method == null) return sendRequestWithMetaAdvanced(url, HttpMethod.GET, headers, body, bodyParameters, headerSupplier);
+        // maxCaptureBytes 与会话均为线程局部设置，对冲请求在其他线程执行，需在此处取值
+        long maxCaptureBytes = maxCaptureBytes();
+        HttpSession session = HttpSession.current();
+        if (VcrCassette.getInstance().isReplaying()) {
+            return VcrCassette.getInstance().replay(buildRequest(url, method, headers, body, bodyParameters, session));
+        }
+        long start = System.currentTimeMillis();
+        Supplier<Map<String, String>> attemptHeaders = attemptHeaders(headers, headerSupplier);
+        ApiHttpResponse response = RetryPolicy.execute(method.name(),
+                () -> buildRequest(url, method, attemptHeaders.get(), body, bodyParameters, session),
+                request -> sendAttempt(request, maxCaptureBytes, session));
+        if (VcrCassette.getInstance().isRecording()) {
+            record(url, method, headers, body, bodyParameters, session, response, System.currentTimeMillis() - start);
+        }
+        return response;
+    }
+
+    /**
+     * 每次尝试所用的请求头：首次使用已生成的 headers，之后调用 headerSupplier 重新生成，避免重放签名时间戳与 nonce
+     */
+    private static Supplier<Map<String, String>> attemptHeaders(Map<String, String> headers,
+                                                                Supplier<Map<String, String>> headerSupplier) {
+        if (headerSupplier == null) return () -> headers;
+        AtomicBoolean first = new AtomicBoolean(true);
+        return () -> first.getAndSet(false) ? headers : headerSupplier.get();
+    }
+
+    /**
+     * 录制经重试/对冲后的最终响应（每个逻辑请求一条），回放时跳过 RetryPolicy 也能得到与真实运行一致的结果
+     * 耗时为含重试退避的总耗时
+     */
+    private static void record(String url, HttpMethod method, Map<String, String> headers, String body,
+                               Map<String, Object> bodyParameters, HttpSession session,
+                               ApiHttpResponse response, long elapsedMs) {
+        try {
+            VcrCassette.getInstance().record(buildRequest(url, method, headers, body, bodyParameters, session), response, elapsedMs);
+        } catch (Exception e) {
+            // 录制失败不影响本次请求结果
+            logger.warn("VCR录制失败: {} {} -> {}", method, url, e.getMessage());
+        }
+    }
+
+    /**
+     * 单次尝试：先经主机熔断器（打开时直接抛出 CircuitOpenException），再经 RateLimiter 取得许可后发送
+     * 响应与未被对冲中止的 IOException 计入熔断统计；其余结束方式（中断、运行时异常、被对冲中止）只归还熔断许可
+     */
+    private static ApiHttpResponse sendAttempt(HttpRequestBase request, long maxCaptureBytes, HttpSession session) throws Exception {
+        CircuitBreaker breaker = breakerFor(request);
+        CircuitBreaker.Permit permit = breaker == null ? null : breaker.acquire();
+        boolean recorded = false;
+        long start = System.currentTimeMillis();
+        try {
+            long permitWaitMs = RateLimiter.acquire(request);
+            start = System.currentTimeMillis();
+            ApiHttpResponse response = doSend(request, maxCaptureBytes, session);
+            long elapsed = System.currentTimeMillis() - start;
+            if (breaker != null) {
+                breaker.record(permit, CircuitBreaker.isFailure(response.getStatusCode()), elapsed);
+                recorded = true;
+            }
+            response.getMetrics().setPermitWaitMs(permitWaitMs);
+            return response;
+        } catch (IOException e) {
+            // 被中断（如限流等待时）不是下游故障，只归还许可
+            if (breaker != null && !request.isAborted() && !Thread.currentThread().isInterrupted()) {
+                breaker.record(permit, true, System.currentTimeMillis() - start);
+                recorded = true;
+            }
+            throw e;
+        } finally {
+            if (breaker != null && !recorded) breaker.release(permit);
+        }
+    }
+
+    private static CircuitBreaker breakerFor(HttpRequestBase request) {
+        if (!CircuitBreaker.isEnabled()) return null;
+        return CircuitBreaker.forHost(request.getURI().getScheme() + "://" + request.getURI().getAuthority());
+    }
+
+    private static ApiHttpResponse doSend(HttpRequestBase request, long maxCaptureBytes, HttpSession session) throws Exception {
+        if (HttpTransport.current().isHttp2()) {
+            if (session != null) session.applyCookies(request);
+            ApiHttpResponse response = AsyncHttpEngine.getInstance().execute(request, maxCaptureBytes);
+            if (session != null) session.storeCookies(request.getURI(), response.getHeaders());
+            return response;
+        }
+        // 绑定会话时共用会话的 CookieStore，否则每个请求独立
+        CookieStore cookieStore = session != null ? session.getCookieStore() : new BasicCookieStore();
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(cookieStore);
+        WireTimer.begin();
+        try (CloseableHttpResponse response = HttpClientEngine.getInstance().execute(request, context)) {
+            int status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+
+            // headers
+            Map<String, List<String>> headerMap = new LinkedHashMap<>();
+            for (Header h : response.getAllHeaders()) {
+                headerMap.computeIfAbsent(h.getName(), k -> new ArrayList<>()).add(h.getValue());
+            }
+
+            // cookies
+            Map<String, String> cookieMap = new LinkedHashMap<>();
+            for (Cookie c : cookieStore.getCookies()) {
+                cookieMap.put(c.getName(), c.getValue());
+            }
+
+            // 读取实体：完整读取时连接归还连接池；被 maxCaptureBytes 截断时中止请求丢弃该连接，
+            // 否则关闭实体流会把剩余响应体读完才归还连接
+            if (entity == null) {
+                ApiHttpResponse result = new ApiHttpResponse(status, null, headerMap, cookieMap);
+                WireTimer.end(result.getTiming(), 0);
+                return result;
+            }
+            ContentType contentType = ContentType.getOrDefault(entity);
+            Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+            String contentEncoding = entity.getContentEncoding() == null ? null : entity.getContentEncoding().getValue();
+            long downloadStart = System.nanoTime();
+            InputStream in = entity.getContent();
+            ApiHttpResponse result;
+            try {
+                result = ApiHttpResponse.capture(status, in, contentEncoding, charset, maxCaptureBytes, headerMap, cookieMap);
+            } catch (IOException | RuntimeException e) {
+                request.abort();
+                closeQuietly(in);
+                throw e;
+            }
+            if (result.isTruncated()) {
+                request.abort();
+                closeQuietly(in);
+            } else {
+                in.close();
+            }
+            WireTimer.end(result.getTiming(), System.nanoTime() - downloadStart);
+            return result;
+        } finally {
+            WireTimer.clear();
+        }
+    }
+
+    /**
+     * 设置当前线程后续请求的 Body 最大读取字节数（<=0 表示不限制），覆盖 http.response.maxCaptureBytes
+     */
+    public static void setMaxCaptureBytes(long maxBytes) {
+        MAX_CAPTURE_BYTES.set(maxBytes);
+    }
+
+    public static void clearMaxCaptureBytes() {
+        MAX_CAPTURE_BYTES.remove();
+    }
+
+    static long maxCaptureBytes() {
+        Long v = MAX_CAPTURE_BYTES.get();
+        return v != null ? v : EnvConfig.getLong("http.response.maxCaptureBytes", -1);
+    }
+
+    /**
+     * 非阻塞发送，立即返回 CompletableFuture，由 AsyncHttpEngine 的 NIO 客户端完成收发
+     */
+    public static CompletableFuture<ApiHttpResponse> sendAsync(String url, String method, Map<String, String> headers, String body) {
+        return sendAsync(url, method, headers, body, null);
+    }
+
+    public static CompletableFuture<ApiHttpResponse> sendAsync(String url, String method,
+                                                               Map<String, String> headers,
+                                                               String body,
+                                                               Map<String, Object> bodyParameters) {
+        return sendAsync(url, HttpMethod.of(method), headers, body, bodyParameters);
+    }
+
+    public static CompletableFuture<ApiHttpResponse> sendAsync(String url, HttpMethod method,
+                                                               Map<String, String> headers,
+                                                               String body,
+                                                               Map<String, Object> bodyParameters) {
+        return sendAsync(url, method, headers, body, bodyParameters, null);
+    }
+
+    /**
+     * 任何错误（包括 VCR 配置错误）都以失败的 Future 返回，不会同步抛出
+     * headerSupplier 含义同 sendRequestWithMetaAdvanced
+     */
+    public static CompletableFuture<ApiHttpResponse> sendAsync(String url, HttpMethod method,
+                                                               Map<String, String> headers,
+                                                               String body,
+                                                               Map<String, Object> bodyParameters,
+                                                               Supplier<Map<String, String>> headerSupplier) {
+        try {
+            return doSendAsync(url, method == null ? HttpMethod.GET : method, headers, body, bodyParameters, headerSupplier);
+        } catch (RuntimeException e) {
+            return failedFuture(e);
+        }
+    }
+
+    private static CompletableFuture<ApiHttpResponse> doSendAsync(String url, HttpMethod method,
+                                                                  Map<String, String> headers,
+                                                                  String body,
+                                                                  Map<String, Object> bodyParameters,
+                                                                  Supplier<Map<String, String>> headerSupplier) {
+        long maxCaptureBytes = maxCaptureBytes();
+        HttpSession session = HttpSession.current();
+        if (VcrCassette.getInstance().isReplaying()) {
+            return replayAsync(url, method, headers, body, bodyParameters, session);
+        }
+        long start = System.currentTimeMillis();
+        Supplier<Map<String, String>> attemptHeaders = attemptHeaders(headers, headerSupplier);
+        CompletableFuture<ApiHttpResponse> future = RetryPolicy.executeAsync(method.name(), () -> {
+            try {
+                return sendAsyncAttempt(buildRequest(url, method, attemptHeaders.get(), body, bodyParameters, session), maxCaptureBytes, session);
+            } catch (Exception e) {
+                return failedFuture(e);
+            }
+        });
+        if (!VcrCassette.getInstance().isRecording()) return future;
+        return future.whenComplete((r, e) -> {
+            if (r != null) record(url, method, headers, body, bodyParameters, session, r, System.currentTimeMillis() - start);
+        });
+    }
+
+    /**
+     * 异步单次尝试：限流等待通过延迟执行器完成，不阻塞调用线程
+     */
+    private static CompletableFuture<ApiHttpResponse> sendAsyncAttempt(HttpRequestBase request, long maxCaptureBytes, HttpSession session) {
+        CircuitBreaker breaker = breakerFor(request);
+        CircuitBreaker.Permit circuitPermit = breaker == null ? null : breaker.acquire();
+        long waitNanos;
+        try {
+            waitNanos = RateLimiter.reserve(request);
+        } catch (RuntimeException e) {
+            if (breaker != null) breaker.release(circuitPermit);
+            throw e;
+        }
+        long[] start = {System.currentTimeMillis()};
+        CompletableFuture<Void> permit = waitNanos <= 0 ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+        CompletableFuture<ApiHttpResponse> attempt = permit.thenCompose(x -> {
+            if (session != null) session.applyCookies(request);
+            start[0] = System.currentTimeMillis();
+            return AsyncHttpEngine.getInstance().send(request, maxCaptureBytes).whenComplete((r, e) -> {
+                if (session != null && r != null) session.storeCookies(request.getURI(), r.getHeaders());
+                if (r != null) r.getMetrics().setPermitWaitMs(waitNanos / 1_000_000);
+            });
+        });
+        if (breaker == null) return attempt;
+        // 无论以何种方式结束都交还熔断许可：响应或 IOException 计入统计，其余只归还
+        return attempt.whenComplete((r, e) -> {
+            long elapsed = System.currentTimeMillis() - start[0];
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (r != null) {
+                breaker.record(circuitPermit, CircuitBreaker.isFailure(r.getStatusCode()), elapsed);
+            } else if (cause instanceof IOException && !request.isAborted()) {
+                breaker.record(circuitPermit, true, elapsed);
+            } else {
+                breaker.release(circuitPermit);
+            }
+        });
+    }
+
+    /**
+     * 回放模式下的异步发送：录制耗时通过延迟执行器模拟，不阻塞调用线程
+     */
+    private static CompletableFuture<ApiHttpResponse> replayAsync(String url, HttpMethod method,
+                                                                  Map<String, String> headers,
+                                                                  String body,
+                                                                  Map<String, Object> bodyParameters,
+                                                                  HttpSession session) {
+        try {
+            VcrCassette.Replayed r = VcrCassette.getInstance().lookup(buildRequest(url, method, headers, body, bodyParameters, session));
+            if (r.latencyMs <= 0) return CompletableFuture.completedFuture(r.response);
+            return CompletableFuture.supplyAsync(() -> r.response,
+                    CompletableFuture.delayedExecutor(r.latencyMs, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+
+    private static CompletableFuture<ApiHttpResponse> failedFuture(Throwable e) {
+        CompletableFuture<ApiHttpResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    private static HttpRequestBase buildRequest(String url, HttpMethod method,
+                                               Map<String, String> headers,
+                                               String body,
+                                               Map<String, Object> bodyParameters,
+                                               HttpSession session) throws Exception {
+        HttpRequestBase request = buildRequest(url, method, headers, body, bodyParameters);
+        if (session != null) session.applyHeaders(request);
+        return request;
+    }
+
+    static HttpRequestBase buildRequest(String url, HttpMethod method,
+                                        Map<String, String> headers,
+                                        String body,
+                                        Map<String, Object> bodyParameters) throws Exception {
         HttpRequestBase request;
-        switch (httpMethod) {
-            case "POST":
+        switch (method) {
+            case POST:
                 HttpPost post = new HttpPost(url);
                 attachEntity(post, headers, body, bodyParameters);
                 request = post;
                 break;
-            case "PUT":
+            case PUT:
                 HttpPut put = new HttpPut(url);
                 attachEntity(put, headers, body, bodyParameters);
                 request = put;
                 break;
-            case "PATCH":
+            case PATCH:
                 HttpPatch patch = new HttpPatch(url);
                 attachEntity(patch, headers, body, bodyParameters);
                 request = patch;
                 break;
-            case "DELETE":
+            case DELETE:
                 request = new HttpDelete(url);
                 break;
             default:
                 request = new HttpGet(url);
         }
 
+        String acceptEncoding = ContentEncodingUtil.acceptEncoding();
+        if (acceptEncoding != null) request.setHeader("Accept-Encoding", acceptEncoding);
         if (headers != null) {
             for (Map.Entry<String, String> entry : headers.entrySet()) {
+                // 不带 boundary 的 multipart/form-data 以实体自身的 Content-Type 为准
+                if ("Content-Type".equalsIgnoreCase(entry.getKey()) && isBareMultipart(entry.getValue())
+                        && request instanceof HttpEntityEnclosingRequestBase
+                        && ((HttpEntityEnclosingRequestBase) request).getEntity() != null) {
+                    continue;
+                }
                 request.setHeader(entry.getKey(), entry.getValue());
             }
         }
-        HttpResponse response = client.execute(request);
-        int status = response.getStatusLine().getStatusCode();
-        String result = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        return request;
+    }
 
-        // headers
-        Map<String, List<String>> headerMap = new LinkedHashMap<>();
-        for (Header h : response.getAllHeaders()) {
-            headerMap.computeIfAbsent(h.getName(), k -> new ArrayList<>()).add(h.getValue());
+    /**
+     * 请求中止后连接已关闭，关闭实体流时读取剩余内容的错误可忽略
+     */
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // 连接已丢弃
         }
+    }
 
-        // cookies
-        Map<String, String> cookieMap = new LinkedHashMap<>();
-        for (Cookie c : cookieStore.getCookies()) {
-            cookieMap.put(c.getName(), c.getValue());
+    private static boolean isBareMultipart(String contentType) {
+        return contentType != null && contentType.trim().toLowerCase().startsWith("multipart/form-data")
+                && !contentType.toLowerCase().contains("boundary=");
+    }
+
+    /**
+     * 满足任一条件时使用流式上传：条目 stream=true、src 为生成式内容、条目声明 generate 大小、
+     * 或文件大小超过 http.upload.streamThresholdBytes
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean useStreamingUpload(List<?> formdata) {
+        if (formdata == null) return false;
+        long threshold = EnvConfig.getLong("http.upload.streamThresholdBytes", 32L * 1024 * 1024);
+        for (Object o : formdata) {
+            Map<String, Object> entry = (Map<String, Object>) o;
+            if (!"file".equalsIgnoreCase(String.valueOf(entry.get("type")))) continue;
+            if (Boolean.TRUE.equals(entry.get("stream")) || entry.get("generate") != null) return true;
+            Object src = entry.get("src");
+            if (src instanceof Supplier) return true;
+            List<?> paths = src instanceof List ? (List<?>) src : Collections.singletonList(src);
+            for (Object path : paths) {
+                if (path != null && new File(String.valueOf(path)).length() > threshold) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 流式 multipart：文件走 FileChannel.transferTo；generate: N 生成 N 字节合成内容；
+     * src 为 Supplier&lt;InputStream&gt; 时直接使用调用方提供的内容流（size 未给出时按 chunked 发送）
+     */
+    @SuppressWarnings("unchecked")
+    private static StreamingMultipartEntity buildStreamingMultipart(List<?> formdata) {
+        StreamingMultipartEntity entity = new StreamingMultipartEntity();
+        for (Object o : formdata) {
+            Map<String, Object> entry = (Map<String, Object>) o;
+            String key = String.valueOf(entry.get("key"));
+            String type = String.valueOf(entry.get("type"));
+            if (!"file".equalsIgnoreCase(type)) {
+                entity.addText(key, entry.get("value") == null ? "" : String.valueOf(entry.get("value")));
+                continue;
+            }
+            Object src = entry.get("src");
+            String fileName = entry.get("fileName") == null ? key : String.valueOf(entry.get("fileName"));
+            if (entry.get("generate") != null) {
+                long size = Long.parseLong(String.valueOf(entry.get("generate")));
+                entity.addStream(key, fileName, StreamingMultipartEntity.generated(size), size, ContentType.APPLICATION_OCTET_STREAM);
+            } else if (src instanceof Supplier) {
+                long size = entry.get("size") == null ? -1 : Long.parseLong(String.valueOf(entry.get("size")));
+                entity.addStream(key, fileName, (Supplier<InputStream>) src, size, ContentType.APPLICATION_OCTET_STREAM);
+            } else {
+                List<?> paths = src instanceof List ? (List<?>) src : Collections.singletonList(src);
+                for (Object path : paths) {
+                    File f = new File(String.valueOf(path));
+                    if (path != null && f.exists()) entity.addFile(key, f, ContentType.APPLICATION_OCTET_STREAM);
+                }
+            }
         }
-        client.close();
-        return new ApiHttpResponse(status, result, headerMap, cookieMap);
+        return entity;
     }
 
     @SuppressWarnings("unchecked")
@@ -106,6 +499,10 @@ public class HttpClientUtil {
                 request.setEntity(new UrlEncodedFormEntity(pairs, StandardCharsets.UTF_8));
                 return;
             }
+            if (bodyParameters.containsKey("formdata") && useStreamingUpload((List<?>) bodyParameters.get("formdata"))) {
+                request.setEntity(buildStreamingMultipart((List<?>) bodyParameters.get("formdata")));
+                return;
+            }
             if (bodyParameters.containsKey("formdata")) {
                 // multipart/form-data (支持文本与文件)
                 MultipartEntityBuilder builder = MultipartEntityBuilder.create();
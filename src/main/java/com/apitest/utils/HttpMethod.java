@@ -0,0 +1,19 @@
+package com.apitest.utils;
+
+/**
+ * 支持的 HTTP 方法
+ * 方法名按大小写不敏感解析，null 或不支持的方法按 GET 处理（与原字符串分支一致）
+ */
+public enum HttpMethod {
+    GET, POST, PUT, PATCH, DELETE;
+
+    private static final HttpMethod[] VALUES = values();
+
+    public static HttpMethod of(String method) {
+        if (method == null) return GET;
+        for (HttpMethod m : VALUES) {
+            if (m.name().equalsIgnoreCase(method)) return m;
+        }
+        return GET;
+    }
+}
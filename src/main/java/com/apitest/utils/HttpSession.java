@@ -0,0 +1,179 @@
+package com.apitest.utils;
+
+import com.apitest.core.LogUtil;
+import org.apache.http.Header;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.cookie.CookieOrigin;
+import org.apache.http.cookie.CookieSpec;
+import org.apache.http.cookie.MalformedCookieException;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.cookie.DefaultCookieSpec;
+import org.apache.http.message.BasicHeader;
+import org.apache.logging.log4j.Logger;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * HTTP 会话：跨请求共享一个 CookieStore 与一组会话请求头（如鉴权头）
+ * 1) 线程绑定：bind() 后当前线程经 HttpClientUtil 发出的请求都使用该会话，unbind() 解除
+ * 2) 虚拟用户共享：named(key) 按名称取得同一会话，多个线程分别 bind 即可共享登录态
+ * 3) 未绑定会话时保持原行为：每个请求使用独立的 CookieStore
+ * 会话请求头覆盖同名的请求头；HTTP/2 与异步发送时按 Cookie 规范手动携带与保存 Cookie
+ */
+public class HttpSession {
+    private static final Logger logger = LogUtil.getLogger(HttpSession.class);
+
+    private static final ThreadLocal<HttpSession> CURRENT = new ThreadLocal<>();
+    private static final ConcurrentMap<String, HttpSession> NAMED = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final CookieStore cookieStore = new BasicCookieStore();
+    private final Map<String, String> headers = new ConcurrentHashMap<>();
+
+    public HttpSession() {
+        this("anonymous");
+    }
+
+    public HttpSession(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 按名称取得共享会话（例如每个虚拟用户一个），不存在时创建
+     */
+    public static HttpSession named(String key) {
+        return NAMED.computeIfAbsent(key, HttpSession::new);
+    }
+
+    public static void removeNamed(String key) {
+        NAMED.remove(key);
+    }
+
+    /**
+     * 当前线程绑定的会话，未绑定时返回 null
+     */
+    public static HttpSession current() {
+        return CURRENT.get();
+    }
+
+    public HttpSession bind() {
+        CURRENT.set(this);
+        return this;
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CookieStore getCookieStore() {
+        return cookieStore;
+    }
+
+    public HttpSession setHeader(String name, String value) {
+        if (value == null) headers.remove(name);
+        else headers.put(name, value);
+        return this;
+    }
+
+    public HttpSession removeHeader(String name) {
+        headers.remove(name);
+        return this;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public HttpSession setBearerToken(String token) {
+        return setHeader("Authorization", token == null ? null : "Bearer " + token);
+    }
+
+    /**
+     * 当前会话中的 Cookie（名称 -> 值）
+     */
+    public Map<String, String> getCookies() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Cookie c : cookieStore.getCookies()) map.put(c.getName(), c.getValue());
+        return map;
+    }
+
+    /**
+     * 清空 Cookie 与会话请求头（如登出后复用会话对象）
+     */
+    public void clear() {
+        cookieStore.clear();
+        headers.clear();
+    }
+
+    /**
+     * 写入会话请求头，覆盖请求中同名的头
+     */
+    void applyHeaders(HttpRequestBase request) {
+        for (Map.Entry<String, String> e : headers.entrySet()) {
+            request.setHeader(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * 不经 Apache HttpClient 发送时（AsyncHttpEngine），按 Cookie 规范匹配并写入 Cookie 请求头
+     */
+    void applyCookies(HttpRequestBase request) {
+        CookieOrigin origin = originOf(request.getURI());
+        CookieSpec spec = new DefaultCookieSpec();
+        cookieStore.clearExpired(new Date());
+        List<Cookie> matched = new ArrayList<>();
+        for (Cookie c : cookieStore.getCookies()) {
+            if (spec.match(c, origin)) matched.add(c);
+        }
+        if (matched.isEmpty()) return;
+        for (Header h : spec.formatCookies(matched)) request.addHeader(h);
+    }
+
+    /**
+     * 保存响应中的 Set-Cookie（AsyncHttpEngine 路径）
+     */
+    void storeCookies(URI uri, Map<String, List<String>> responseHeaders) {
+        if (responseHeaders == null) return;
+        CookieOrigin origin = originOf(uri);
+        CookieSpec spec = new DefaultCookieSpec();
+        for (Map.Entry<String, List<String>> e : responseHeaders.entrySet()) {
+            if (!"set-cookie".equalsIgnoreCase(e.getKey())) continue;
+            for (String value : e.getValue()) {
+                try {
+                    for (Cookie c : spec.parse(new BasicHeader("Set-Cookie", value), origin)) {
+                        spec.validate(c, origin);
+                        cookieStore.addCookie(c);
+                    }
+                } catch (MalformedCookieException ex) {
+                    logger.warn("忽略无效Set-Cookie: {} -> {}", value, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private static CookieOrigin originOf(URI uri) {
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        return new CookieOrigin(uri.getHost(), port, path, secure);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpSession{" + name + ", cookies=" + cookieStore.getCookies().size() + ", headers=" + headers.keySet() + '}';
+    }
+}
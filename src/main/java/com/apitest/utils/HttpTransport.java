@@ -0,0 +1,54 @@
+package com.apitest.utils;
+
+import com.apitest.core.LogUtil;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * HTTP 传输模式，按环境在 apiconfig/env.yml 的 http.transport 下配置
+ * - http1：Apache HttpClient 连接池，HTTP/1.1（默认）
+ * - h2：JDK HttpClient，HTTPS 下通过 ALPN 协商 HTTP/2，同一主机的并发请求复用一条连接的多个流；
+ *   明文 http:// 由 JDK 在首个请求上发送 Upgrade: h2c 尝试升级
+ * 服务端不支持 HTTP/2 时自动回落到 HTTP/1.1
+ * JDK HttpClient 不支持 prior-knowledge h2c（不经升级直接以 HTTP/2 明文通信），只接受该方式的服务端无法使用；
+ * 旧配置 h2c 按 h2 处理
+ */
+public enum HttpTransport {
+    HTTP1,
+    H2;
+
+    private static final Logger logger = LogUtil.getLogger(HttpTransport.class);
+
+    private static volatile HttpTransport current;
+
+    public boolean isHttp2() {
+        return this == H2;
+    }
+
+    public static HttpTransport of(String name) {
+        if (name == null) return HTTP1;
+        switch (name.trim().toLowerCase()) {
+            case "h2c":
+                logger.warn("http.transport=h2c 已并入 h2：明文连接通过 Upgrade 升级，不支持 prior-knowledge h2c");
+                return H2;
+            case "h2":
+            case "http2":
+                return H2;
+            case "http1":
+            case "http1.1":
+            default:
+                return HTTP1;
+        }
+    }
+
+    /**
+     * 当前环境的传输模式，首次读取后缓存（每个请求都会查询）
+     */
+    public static HttpTransport current() {
+        HttpTransport t = current;
+        if (t == null) {
+            t = of(EnvConfig.getString("http.transport", "http1"));
+            current = t;
+        }
+        return t;
+    }
+}
@@ -0,0 +1,177 @@
+package com.apitest.utils;
+
+import com.apitest.core.LogUtil;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.logging.log4j.Logger;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * 客户端令牌桶限流，按主机与 path/method 规则配置（http.rateLimit.rules）
+ * 1) 每条规则：host（* 表示每个主机各自一个桶）、method（* 任意）、path（* 匹配一段，** 匹配多段）、rate（每秒许可数）、burst（突发容量）
+ * 2) 一个请求命中多条规则时需同时取得各桶许可，等待时间取最大值
+ * 3) 令牌桶以“理论到达时间”单个 AtomicLong 实现，CAS 预约许可，无锁
+ * 等待时间记录在 ApiHttpResponse.getMetrics().getPermitWaitMs()
+ */
+public class RateLimiter {
+    private static final Logger logger = LogUtil.getLogger(RateLimiter.class);
+
+    private static final ConcurrentMap<String, Bucket> BUCKETS = new ConcurrentHashMap<>();
+    private static volatile List<Rule> rules;
+
+    /**
+     * 为请求预约许可，返回需要等待的纳秒数（0 表示立即放行）；预约即占用，调用方需等待后再发送
+     */
+    public static long reserve(HttpRequestBase request) {
+        if (!EnvConfig.getBoolean("http.rateLimit.enabled", false)) return 0;
+        URI uri = request.getURI();
+        String host = uri.getAuthority();
+        String method = request.getMethod();
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        long now = System.nanoTime();
+        long wait = 0;
+        List<Rule> all = rules();
+        for (int i = 0; i < all.size(); i++) {
+            Rule rule = all.get(i);
+            if (!rule.matches(host, method, path)) continue;
+            Bucket bucket = BUCKETS.computeIfAbsent(i + "|" + host, k -> new Bucket(rule.rate, rule.burst));
+            wait = Math.max(wait, bucket.reserve(now));
+        }
+        return wait;
+    }
+
+    /**
+     * 同步发送前调用：取得许可（必要时阻塞等待），返回等待毫秒数
+     * 等待中被中断时保留中断标志并抛出 InterruptedIOException，请求不应再发送（已预约的许可不归还）
+     */
+    public static long acquire(HttpRequestBase request) throws InterruptedIOException {
+        long waitNanos = reserve(request);
+        if (waitNanos <= 0) return 0;
+        await(waitNanos, request.getURI());
+        return waitNanos / 1_000_000;
+    }
+
+    static void await(long waitNanos, Object target) throws InterruptedIOException {
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("限流等待被中断: " + target);
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static List<Rule> rules() {
+        List<Rule> r = rules;
+        if (r == null) {
+            synchronized (RateLimiter.class) {
+                r = rules;
+                if (r == null) {
+                    r = loadRules();
+                    rules = r;
+                }
+            }
+        }
+        return r;
+    }
+
+    private static List<Rule> loadRules() {
+        Object node = EnvConfig.get("http.rateLimit.rules");
+        if (!(node instanceof Collection)) return Collections.emptyList();
+        List<Rule> list = new ArrayList<>();
+        for (Object o : (Collection<?>) node) {
+            if (!(o instanceof Map)) continue;
+            Map<?, ?> m = (Map<?, ?>) o;
+            try {
+                double rate = Double.parseDouble(String.valueOf(m.get("rate")));
+                Object burst = m.get("burst");
+                list.add(new Rule(str(m.get("host")), str(m.get("method")), str(m.get("path")),
+                        rate, burst == null ? 1 : Math.max(1, Integer.parseInt(String.valueOf(burst)))));
+            } catch (RuntimeException e) {
+                logger.warn("忽略无效限流规则: {} -> {}", m, e.getMessage());
+            }
+        }
+        logger.info("限流规则已加载: {} 条", list.size());
+        return list;
+    }
+
+    private static String str(Object o) {
+        return o == null ? "*" : String.valueOf(o).trim();
+    }
+
+    private static final class Rule {
+        final String host;
+        final String method;
+        final Pattern path;
+        final double rate;
+        final int burst;
+
+        Rule(String host, String method, String path, double rate, int burst) {
+            if (rate <= 0) throw new IllegalArgumentException("rate 必须大于 0");
+            this.host = host;
+            this.method = method.toUpperCase();
+            this.path = "*".equals(path) || "/**".equals(path) ? null : glob(path);
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+        boolean matches(String host, String method, String path) {
+            return ("*".equals(this.host) || this.host.equalsIgnoreCase(host))
+                    && ("*".equals(this.method) || this.method.equals(method))
+                    && (this.path == null || this.path.matcher(path).matches());
+        }
+
+        private static Pattern glob(String glob) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*') {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        sb.append(".*");
+                        i++;
+                    } else {
+                        sb.append("[^/]*");
+                    }
+                } else {
+                    sb.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(sb.toString());
+        }
+    }
+
+    /**
+     * GCRA 形式的令牌桶：tat 为理论到达时间，tat 超前当前时间不超过 (burst-1)*interval 时立即放行
+     */
+    static final class Bucket {
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+        Bucket(double rate, int burst) {
+            this.intervalNanos = (long) (1_000_000_000L / rate);
+            this.toleranceNanos = intervalNanos * (burst - 1);
+        }
+
+        long reserve(long now) {
+            while (true) {
+                long current = tat.get();
+                long t = current == Long.MIN_VALUE ? now : current;
+                long next = Math.max(t, now) + intervalNanos;
+                if (tat.compareAndSet(current, next)) {
+                    return Math.max(0, t - toleranceNanos - now);
+                }
+            }
+        }
+    }
+}
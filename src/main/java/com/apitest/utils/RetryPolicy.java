@@ -0,0 +1,292 @@
+package com.apitest.utils;
+
+import com.apitest.basetestcase.ApiHttpResponse;
+import com.apitest.core.LogUtil;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 请求重试与对冲策略，位于 HttpClientUtil 发送逻辑之前
+ * 1) 重试：次数取 retryCount，指数退避 + 全抖动（http.retry.baseDelayMs ~ maxDelayMs）；
+ *    IOException 或 http.retry.statuses 中的状态码触发；默认仅幂等方法重试
+ * 2) 对冲：http.hedge.enabled=true 时，幂等请求在该接口 p95 耗时后仍未返回则再发一份，取先到的响应，另一份中止；
+ *    对冲请求在 http.hedge.threads 个线程上执行，超出时排队
+ * 每次尝试的请求由 RequestFactory 重新构造（含重新生成的认证头），签名类认证不会重放时间戳与 nonce
+ * 每次请求的重试、对冲次数记录在 ApiHttpResponse.getMetrics()
+ */
+public class RetryPolicy {
+    private static final Logger logger = LogUtil.getLogger(RetryPolicy.class);
+
+    private static final Set<String> IDEMPOTENT = new HashSet<>(Arrays.asList("GET", "HEAD", "PUT", "DELETE", "OPTIONS"));
+    private static final ConcurrentMap<String, LatencyWindow> LATENCIES = new ConcurrentHashMap<>();
+
+    private static final ExecutorService HEDGE_EXECUTOR = newHedgeExecutor();
+
+    private static class Config {
+        /** 触发重试的状态码，只在首次使用时解析一次 */
+        private static final Set<Integer> RETRY_STATUSES = parseStatuses(EnvConfig.getString("http.retry.statuses", "502,503,504"));
+    }
+
+    private static ExecutorService newHedgeExecutor() {
+        int threads = Math.max(1, EnvConfig.getInt("http.hedge.threads", 32));
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "http-hedge-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * 构造一次尝试所用的请求（每次尝试都重新构造，便于中止与重发实体）
+     */
+    @FunctionalInterface
+    public interface RequestFactory {
+        HttpRequestBase build() throws Exception;
+    }
+
+    /**
+     * 发送一次请求
+     */
+    @FunctionalInterface
+    public interface Sender {
+        ApiHttpResponse send(HttpRequestBase request) throws Exception;
+    }
+
+    public static ApiHttpResponse execute(String method, RequestFactory factory, Sender sender) throws Exception {
+        long start = System.currentTimeMillis();
+        boolean idempotent = IDEMPOTENT.contains(method);
+        int maxRetries = idempotent || EnvConfig.getBoolean("http.retry.nonIdempotent", false)
+                ? Math.max(0, EnvConfig.getInt("retryCount", 0)) : 0;
+        boolean hedge = idempotent && EnvConfig.getBoolean("http.hedge.enabled", false);
+
+        int retries = 0;
+        int hedges = 0;
+        Exception lastError = null;
+        ApiHttpResponse response = null;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                retries++;
+                sleepBackoff(attempt);
+            }
+            try {
+                if (hedge) {
+                    HedgeOutcome outcome = sendHedged(factory, sender);
+                    hedges += outcome.hedges;
+                    response = outcome.response;
+                } else {
+                    HttpRequestBase request = factory.build();
+                    response = timed(request, sender);
+                }
+                lastError = null;
+                if (!isRetryableStatus(response.getStatusCode()) || attempt == maxRetries) break;
+                logger.warn("可重试状态码 {}，第 {} 次重试", response.getStatusCode(), attempt + 1);
+            } catch (IOException e) {
+                // 线程已被中断时不再重试
+                if (Thread.currentThread().isInterrupted()) throw e;
+                lastError = e;
+                if (attempt < maxRetries) logger.warn("请求失败: {}，第 {} 次重试", e.getMessage(), attempt + 1);
+            }
+        }
+        if (lastError != null) throw lastError;
+        response.getMetrics().setRetries(retries);
+        response.getMetrics().setHedges(hedges);
+        response.getMetrics().setTotalMs(System.currentTimeMillis() - start);
+        return response;
+    }
+
+    /**
+     * 异步版本：仅重试，不对冲；退避通过延迟执行器完成，不阻塞线程
+     */
+    public static CompletableFuture<ApiHttpResponse> executeAsync(String method, Supplier<CompletableFuture<ApiHttpResponse>> attempt) {
+        boolean idempotent = IDEMPOTENT.contains(method);
+        int maxRetries = idempotent || EnvConfig.getBoolean("http.retry.nonIdempotent", false)
+                ? Math.max(0, EnvConfig.getInt("retryCount", 0)) : 0;
+        long start = System.currentTimeMillis();
+        return attemptAsync(attempt, 0, maxRetries).thenApply(r -> {
+            r.getMetrics().setTotalMs(System.currentTimeMillis() - start);
+            return r;
+        });
+    }
+
+    private static CompletableFuture<ApiHttpResponse> attemptAsync(Supplier<CompletableFuture<ApiHttpResponse>> attempt,
+                                                                   int n, int maxRetries) {
+        return attempt.get().handle((r, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            boolean retry = n < maxRetries && (cause instanceof IOException || (cause == null && isRetryableStatus(r.getStatusCode())));
+            if (!retry) {
+                if (cause != null) {
+                    CompletableFuture<ApiHttpResponse> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                }
+                r.getMetrics().setRetries(n);
+                return CompletableFuture.completedFuture(r);
+            }
+            return CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(backoffMs(n + 1), TimeUnit.MILLISECONDS))
+                    .thenCompose(x -> attemptAsync(attempt, n + 1, maxRetries));
+        }).thenCompose(f -> f);
+    }
+
+    private static ApiHttpResponse timed(HttpRequestBase request, Sender sender) throws Exception {
+        long s = System.currentTimeMillis();
+        ApiHttpResponse r = sender.send(request);
+        recordLatency(request, System.currentTimeMillis() - s);
+        return r;
+    }
+
+    private static HedgeOutcome sendHedged(RequestFactory factory, Sender sender) throws Exception {
+        HttpRequestBase primary = factory.build();
+        CompletableFuture<ApiHttpResponse> first = submit(primary, sender);
+        long delay = hedgeDelayMs(primary);
+        try {
+            return new HedgeOutcome(first.get(delay, TimeUnit.MILLISECONDS), 0);
+        } catch (TimeoutException e) {
+            // 超过 p95 仍未返回，发出对冲请求
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        HttpRequestBase backup = factory.build();
+        CompletableFuture<ApiHttpResponse> second = submit(backup, sender);
+        CompletableFuture<Object> any = CompletableFuture.anyOf(first, second);
+        try {
+            ApiHttpResponse winner = (ApiHttpResponse) any.get();
+            if (first.isDone() && !first.isCompletedExceptionally() && first.getNow(null) == winner) backup.abort();
+            else primary.abort();
+            return new HedgeOutcome(winner, 1);
+        } catch (ExecutionException e) {
+            // 先完成的一份失败时，等待另一份
+            CompletableFuture<ApiHttpResponse> other = first.isCompletedExceptionally() ? second : first;
+            try {
+                return new HedgeOutcome(other.get(), 1);
+            } catch (ExecutionException e2) {
+                throw unwrap(e2);
+            }
+        }
+    }
+
+    private static CompletableFuture<ApiHttpResponse> submit(HttpRequestBase request, Sender sender) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timed(request, sender);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, HEDGE_EXECUTOR);
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable c = e.getCause();
+        return c instanceof Exception ? (Exception) c : e;
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return Config.RETRY_STATUSES.contains(status);
+    }
+
+    static Set<Integer> parseStatuses(String statuses) {
+        Set<Integer> set = new HashSet<>();
+        for (String s : statuses.split(",")) {
+            if (s.trim().isEmpty()) continue;
+            try {
+                set.add(Integer.parseInt(s.trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("忽略无效的 http.retry.statuses 项: {}", s);
+            }
+        }
+        return set;
+    }
+
+    private static void sleepBackoff(int attempt) throws IOException {
+        try {
+            Thread.sleep(backoffMs(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("重试等待被中断", e);
+        }
+    }
+
+    /**
+     * 指数退避 + 全抖动：random(0, min(maxDelay, baseDelay * 2^(attempt-1)))
+     */
+    static long backoffMs(int attempt) {
+        long base = EnvConfig.getLong("http.retry.baseDelayMs", 200);
+        long max = EnvConfig.getLong("http.retry.maxDelayMs", 5000);
+        long cap = Math.min(max, base << Math.min(attempt - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static long hedgeDelayMs(HttpRequestBase request) {
+        long fallback = EnvConfig.getLong("http.hedge.delayMs", 1000);
+        LatencyWindow w = LATENCIES.get(endpointKey(request));
+        long p95 = w == null ? -1 : w.percentile(0.95, EnvConfig.getInt("http.hedge.minSamples", 20));
+        return p95 < 0 ? fallback : Math.max(p95, EnvConfig.getLong("http.hedge.minDelayMs", 50));
+    }
+
+    private static void recordLatency(HttpRequestBase request, long ms) {
+        LATENCIES.computeIfAbsent(endpointKey(request), k -> new LatencyWindow(100)).add(ms);
+    }
+
+    private static String endpointKey(HttpRequestBase request) {
+        URI uri = request.getURI();
+        return request.getMethod() + " " + uri.getScheme() + "://" + uri.getAuthority() + uri.getPath();
+    }
+
+    private static final class HedgeOutcome {
+        final ApiHttpResponse response;
+        final int hedges;
+
+        HedgeOutcome(ApiHttpResponse response, int hedges) {
+            this.response = response;
+            this.hedges = hedges;
+        }
+    }
+
+    /**
+     * 固定窗口的最近耗时样本
+     */
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int count;
+        private int next;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long ms) {
+            samples[next] = ms;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+
+        synchronized long percentile(double p, int minSamples) {
+            if (count < minSamples) return -1;
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.apitest.utils;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.function.Supplier;
+
+/**
+ * 流式 multipart/form-data 实体，用于大文件上传
+ * 1) 文件部分按 8MB 分段经 FileChannel.transferTo 写出，不整体加载到堆内；目标是 OutputStream 包装的通道，
+ *    JDK 仍经由中间缓冲复制，并非零拷贝（sendfile 只在目标为 SocketChannel/FileChannel 时生效）
+ * 2) 支持生成式内容（Supplier&lt;InputStream&gt;），合成的大文件无需先落盘
+ * 3) 任一部分长度未知或 http.upload.chunked=true 时使用 chunked 传输编码
+ * 4) 字段名与文件名写入 Content-Disposition 的引号串：" 与 \ 以反斜杠转义，含 CR/LF 时拒绝（IllegalArgumentException）
+ * 实体可重复写出（文件重新打开、Supplier 重新调用），重试与重定向时可再次发送
+ */
+public class StreamingMultipartEntity extends AbstractHttpEntity {
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final String boundary;
+    private final List<Part> parts = new ArrayList<>();
+
+    public StreamingMultipartEntity() {
+        this.boundary = "----ApiTestBoundary" + UUID.randomUUID().toString().replace("-", "");
+        setContentType("multipart/form-data; boundary=" + boundary);
+        setChunked(EnvConfig.getBoolean("http.upload.chunked", false));
+    }
+
+    public StreamingMultipartEntity addText(String name, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        parts.add(new Part(name, null, ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8), null,
+                () -> new ByteArrayInputStream(bytes), bytes.length));
+        return this;
+    }
+
+    public StreamingMultipartEntity addFile(String name, File file, ContentType contentType) {
+        parts.add(new Part(name, file.getName(), contentType, file, null, file.length()));
+        return this;
+    }
+
+    /**
+     * 添加生成式内容，size 未知时传 -1（整体将使用 chunked 编码）
+     */
+    public StreamingMultipartEntity addStream(String name, String fileName, Supplier<InputStream> content,
+                                              long size, ContentType contentType) {
+        parts.add(new Part(name, fileName, contentType, null, content, size));
+        return this;
+    }
+
+    /**
+     * 生成指定大小的合成内容（循环字节模式），用于大文件上传测试
+     */
+    public static Supplier<InputStream> generated(long size) {
+        return () -> new InputStream() {
+            private long pos = 0;
+
+            @Override
+            public int read() {
+                if (pos >= size) return -1;
+                return 'a' + (int) (pos++ % 26);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (pos >= size) return -1;
+                int n = (int) Math.min(len, size - pos);
+                for (int i = 0; i < n; i++) {
+                    b[off + i] = (byte) ('a' + (int) (pos++ % 26));
+                }
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return super.isChunked() || getContentLength() < 0;
+    }
+
+    @Override
+    public long getContentLength() {
+        long total = 0;
+        for (Part p : parts) {
+            if (p.size < 0) return -1;
+            total += p.header().length + p.size + CRLF.length;
+        }
+        return total + closing().length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        Vector<InputStream> streams = new Vector<>();
+        for (Part p : parts) {
+            streams.add(new ByteArrayInputStream(p.header()));
+            streams.add(p.open());
+            streams.add(new ByteArrayInputStream(CRLF));
+        }
+        streams.add(new ByteArrayInputStream(closing()));
+        return new SequenceInputStream(streams.elements());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        byte[] buf = new byte[8192];
+        for (Part p : parts) {
+            out.write(p.header());
+            if (p.file != null) {
+                try (FileChannel ch = FileChannel.open(p.file.toPath(), StandardOpenOption.READ)) {
+                    long pos = 0;
+                    long size = ch.size();
+                    while (pos < size) {
+                        pos += ch.transferTo(pos, Math.min(TRANSFER_CHUNK, size - pos), target);
+                    }
+                }
+            } else {
+                try (InputStream in = p.content.get()) {
+                    int n;
+                    while ((n = in.read(buf)) != -1) {
+                        out.write(buf, 0, n);
+                    }
+                }
+            }
+            out.write(CRLF);
+        }
+        out.write(closing());
+        out.flush();
+    }
+
+    /**
+     * 按引号串写出参数值；CR/LF 会截断或伪造部分头部，直接拒绝
+     */
+    static String quoted(String value) {
+        String v = value == null ? "" : value;
+        StringBuilder sb = new StringBuilder(v.length() + 2).append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '\r' || c == '\n') throw new IllegalArgumentException("multipart 字段名/文件名不能包含换行: " + v.trim());
+            if (c == '"' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private byte[] closing() {
+        return ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final class Part {
+        /** 已加引号与转义 */
+        final String quotedName;
+        final String quotedFileName;
+        final ContentType contentType;
+        final File file;
+        final Supplier<InputStream> content;
+        final long size;
+
+        Part(String name, String fileName, ContentType contentType, File file, Supplier<InputStream> content, long size) {
+            this.quotedName = quoted(name);
+            this.quotedFileName = fileName == null ? null : quoted(fileName);
+            this.contentType = contentType;
+            this.file = file;
+            this.content = content;
+            this.size = size;
+        }
+
+        byte[] header() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("--").append(boundary).append("\r\n");
+            sb.append("Content-Disposition: form-data; name=").append(quotedName);
+            if (quotedFileName != null) sb.append("; filename=").append(quotedFileName);
+            sb.append("\r\n");
+            if (contentType != null) sb.append("Content-Type: ").append(contentType).append("\r\n");
+            sb.append("\r\n");
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        InputStream open() throws IOException {
+            return file != null ? Files.newInputStream(file.toPath()) : content.get();
+        }
+    }
+}
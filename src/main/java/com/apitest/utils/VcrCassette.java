@@ -0,0 +1,353 @@
+package com.apitest.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.apitest.basetestcase.ApiHttpResponse;
+import com.apitest.core.LogUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 录制/回放（VCR）
+ * 1) http.vcr.mode=record：真实发送，并把请求/响应对追加写入磁带 &lt;cassette&gt;.dat，索引写入 &lt;cassette&gt;.idx
+ * 2) http.vcr.mode=replay：不发网络请求，从内存映射的 .dat 中按索引读取响应；未录制的请求直接报错
+ * 3) 索引键 = 方法 + URL + 归一化 Body 的 SHA-256（JSON 按键排序，忽略 http.vcr.ignoreBodyFields，multipart 去除随机 boundary）
+ * 同一键录制多次时按录制顺序依次回放，用尽后重复最后一次；http.vcr.replayLatency=true 时按录制耗时延迟返回
+ * 每个逻辑请求只录制经重试/对冲后的最终响应（由 HttpClientUtil 在 RetryPolicy 之外录制），回放时不再经过 RetryPolicy
+ * 配置错误（mode 取值无效、回放磁带不存在）在每次使用时抛出带说明的 IllegalStateException，修正配置后无需重启
+ */
+public class VcrCassette {
+    private static final Logger logger = LogUtil.getLogger(VcrCassette.class);
+
+    public enum Mode { OFF, RECORD, REPLAY }
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final Mode mode;
+    private final boolean replayLatency;
+    private final List<String> ignoreBodyFields = new ArrayList<>();
+
+    private final ConcurrentMap<String, List<long[]>> index = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private MappedByteBuffer mapped;
+
+    private VcrCassette() {
+        this(parseMode(EnvConfig.getString("http.vcr.mode", "off")),
+                EnvConfig.resolve(EnvConfig.getString("http.vcr.cassette", "target/cassettes/default")),
+                EnvConfig.getBoolean("http.vcr.replayLatency", false),
+                EnvConfig.get("http.vcr.ignoreBodyFields"));
+    }
+
+    VcrCassette(Mode mode, String base, boolean replayLatency, Object ignore) {
+        this.mode = mode;
+        this.dataFile = Paths.get(base + ".dat");
+        this.indexFile = Paths.get(base + ".idx");
+        this.replayLatency = replayLatency;
+        if (ignore instanceof Collection) {
+            for (Object o : (Collection<?>) ignore) ignoreBodyFields.add(String.valueOf(o));
+        }
+        if (this.mode == Mode.REPLAY) loadForReplay();
+        if (this.mode != Mode.OFF) logger.info("VCR模式: {}, 磁带: {}", this.mode, base);
+    }
+
+    private static volatile VcrCassette instance;
+
+    /**
+     * 首次使用时按配置创建；创建失败不缓存（避免类初始化失败后一直报 NoClassDefFoundError），下次调用重新检查配置
+     */
+    public static VcrCassette getInstance() {
+        VcrCassette c = instance;
+        if (c == null) {
+            synchronized (VcrCassette.class) {
+                c = instance;
+                if (c == null) {
+                    c = new VcrCassette();
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    static Mode parseMode(String value) {
+        String mode = value == null ? "" : value.trim().toUpperCase();
+        // YAML 中未加引号的 off 会被解析为 false
+        if (mode.isEmpty() || "FALSE".equals(mode)) return Mode.OFF;
+        for (Mode m : Mode.values()) {
+            if (m.name().equals(mode)) return m;
+        }
+        throw new IllegalStateException("http.vcr.mode 取值无效: " + value + "，可选 off / record / replay");
+    }
+
+    public boolean isRecording() {
+        return mode == Mode.RECORD;
+    }
+
+    public boolean isReplaying() {
+        return mode == Mode.REPLAY;
+    }
+
+    /**
+     * 追加一条录制；响应体按解压后的字节保存
+     */
+    public void record(HttpRequestBase request, ApiHttpResponse response, long latencyMs) {
+        try {
+            String key = keyOf(request);
+            byte[] record = encode(response, latencyMs);
+            synchronized (this) {
+                Files.createDirectories(dataFile.toAbsolutePath().getParent());
+                long offset;
+                try (FileChannel ch = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+                    offset = ch.size();
+                    ByteBuffer buf = ByteBuffer.wrap(record);
+                    while (buf.hasRemaining()) ch.write(buf);
+                }
+                String line = key + "\t" + offset + "\t" + record.length + "\n";
+                Files.write(indexFile, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            logger.warn("VCR录制失败: {} {} -> {}", request.getMethod(), request.getURI(), e.getMessage());
+        }
+    }
+
+    /**
+     * 回放请求对应的录制；返回前按需等待录制时的耗时
+     */
+    public ApiHttpResponse replay(HttpRequestBase request) throws IOException {
+        Replayed r = lookup(request);
+        if (r.latencyMs > 0) {
+            try {
+                Thread.sleep(r.latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("回放等待被中断", e);
+            }
+        }
+        return r.response;
+    }
+
+    /**
+     * 查找录制，latencyMs 为需要模拟的耗时（未开启 replayLatency 时为 0），由调用方决定同步或异步等待
+     */
+    Replayed lookup(HttpRequestBase request) throws IOException {
+        String key = keyOf(request);
+        List<long[]> entries = index.get(key);
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalStateException("VCR回放未找到录制: " + key + "，请先以 http.vcr.mode=record 运行");
+        }
+        int i = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        long[] entry = entries.get(Math.min(i, entries.size() - 1));
+        ByteBuffer slice = mapped.duplicate();
+        slice.position((int) entry[0]);
+        slice.limit((int) (entry[0] + entry[1]));
+        return decode(slice.slice());
+    }
+
+    static final class Replayed {
+        final ApiHttpResponse response;
+        final long latencyMs;
+
+        Replayed(ApiHttpResponse response, long latencyMs) {
+            this.response = response;
+            this.latencyMs = latencyMs;
+        }
+    }
+
+    private void loadForReplay() {
+        if (!Files.isRegularFile(dataFile) || !Files.isRegularFile(indexFile)) {
+            throw new IllegalStateException("VCR磁带不存在: " + dataFile + " / " + indexFile
+                    + "，请先以 http.vcr.mode=record 录制，或检查 http.vcr.cassette");
+        }
+        try (FileChannel ch = FileChannel.open(dataFile, StandardOpenOption.READ);
+             BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IllegalStateException("VCR磁带超过2GB，请拆分: " + dataFile);
+            mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            String line;
+            int count = 0;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 3) continue;
+                index.computeIfAbsent(parts[0], k -> new ArrayList<>())
+                        .add(new long[]{Long.parseLong(parts[1]), Long.parseLong(parts[2])});
+                count++;
+            }
+            logger.info("VCR磁带已加载: {} 条录制, {} 个请求键", count, index.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("加载VCR磁带失败: " + dataFile, e);
+        }
+    }
+
+    // ========== 索引键 ==========
+
+    String keyOf(HttpRequestBase request) throws IOException {
+        return request.getMethod() + " " + request.getURI() + " " + bodyHash(request);
+    }
+
+    private String bodyHash(HttpRequestBase request) throws IOException {
+        if (!(request instanceof HttpEntityEnclosingRequest)) return "-";
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity == null) return "-";
+        // 流式上传不读取内容，以长度区分
+        if (entity instanceof StreamingMultipartEntity || !entity.isRepeatable()) {
+            return "stream-" + entity.getContentLength();
+        }
+        byte[] raw = EntityUtils.toByteArray(entity);
+        // 请求头中的 Content-Type 优先于实体自带的类型
+        ContentType contentType = request.getFirstHeader("Content-Type") != null
+                ? ContentType.parse(request.getFirstHeader("Content-Type").getValue()) : ContentType.get(entity);
+        String mime = contentType == null ? "" : contentType.getMimeType().toLowerCase();
+        Charset charset = contentType == null || contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+        String normalized;
+        if (mime.contains("json")) {
+            normalized = normalizeJson(new String(raw, charset));
+        } else if (mime.startsWith("multipart/")) {
+            String boundary = contentType.getParameter("boundary");
+            normalized = new String(raw, StandardCharsets.ISO_8859_1);
+            if (boundary != null) normalized = normalized.replace(boundary, "BOUNDARY");
+        } else {
+            return DigestUtils.sha256Hex(raw);
+        }
+        return DigestUtils.sha256Hex(normalized.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String normalizeJson(String text) {
+        try {
+            Object parsed = JSON.parse(text);
+            if (parsed instanceof JSONObject) {
+                for (String f : ignoreBodyFields) ((JSONObject) parsed).remove(f);
+            }
+            return JSON.toJSONString(parsed, SerializerFeature.MapSortField, SerializerFeature.SortField);
+        } catch (RuntimeException e) {
+            return text;
+        }
+    }
+
+    // ========== 记录格式 ==========
+    // status(int) latencyMs(long) truncated(bool) charset(UTF)
+    // headerCount(int) [name(UTF) valueCount(int) [value(UTF)]] cookieCount(int) [name(UTF) value(UTF)]
+    // bodyLength(int, -1 表示无 Body) body(bytes)
+
+    private static byte[] encode(ApiHttpResponse response, long latencyMs) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(response.getStatusCode());
+        out.writeLong(latencyMs);
+        out.writeBoolean(response.isTruncated());
+        out.writeUTF(charsetOf(response.getHeaders()).name());
+        out.writeInt(response.getHeaders().size());
+        for (Map.Entry<String, List<String>> h : response.getHeaders().entrySet()) {
+            out.writeUTF(h.getKey());
+            out.writeInt(h.getValue().size());
+            for (String v : h.getValue()) out.writeUTF(v);
+        }
+        out.writeInt(response.getCookies().size());
+        for (Map.Entry<String, String> c : response.getCookies().entrySet()) {
+            out.writeUTF(c.getKey());
+            out.writeUTF(c.getValue() == null ? "" : c.getValue());
+        }
+        byte[] body = response.getBodyBytes();
+        if (body == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(body.length);
+            out.write(body);
+        }
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private Replayed decode(ByteBuffer buf) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buf));
+        int status = in.readInt();
+        long latencyMs = in.readLong();
+        boolean truncated = in.readBoolean();
+        Charset charset = Charset.forName(in.readUTF());
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        int headerCount = in.readInt();
+        for (int i = 0; i < headerCount; i++) {
+            String name = in.readUTF();
+            int n = in.readInt();
+            List<String> values = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) values.add(in.readUTF());
+            headers.put(name, values);
+        }
+        Map<String, String> cookies = new LinkedHashMap<>();
+        int cookieCount = in.readInt();
+        for (int i = 0; i < cookieCount; i++) cookies.put(in.readUTF(), in.readUTF());
+        int length = in.readInt();
+        byte[] body = null;
+        if (length >= 0) {
+            body = new byte[length];
+            in.readFully(body);
+        }
+        ApiHttpResponse response = new ApiHttpResponse(status, body, charset, truncated, headers, cookies);
+        return new Replayed(response, replayLatency ? latencyMs : 0);
+    }
+
+    private static Charset charsetOf(Map<String, List<String>> headers) {
+        for (Map.Entry<String, List<String>> h : headers.entrySet()) {
+            if (!"content-type".equalsIgnoreCase(h.getKey()) || h.getValue().isEmpty()) continue;
+            try {
+                ContentType ct = ContentType.parse(h.getValue().get(0));
+                if (ct.getCharset() != null) return ct.getCharset();
+            } catch (RuntimeException ignored) {
+                // 非法 Content-Type 使用默认编码
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
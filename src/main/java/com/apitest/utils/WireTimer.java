@@ -0,0 +1,139 @@
+package com.apitest.utils;
+
+import com.apitest.basetestcase.WireTiming;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * 同步请求的网络阶段计时
+ * Apache HttpClient 在调用线程上完成解析、建连、握手与收发，故以线程局部累加器记录各阶段：
+ * CachingDnsResolver 记录 DNS，Timed*SocketFactory 记录建连与 TLS，TimedRequestExecutor 记录写出与首字节
+ * 未调用 begin() 的线程（如连接预热）不记录
+ */
+class WireTimer {
+    static final int DNS = 0;
+    static final int CONNECT = 1;
+    static final int TLS = 2;
+    static final int WRITE = 3;
+    static final int TTFB = 4;
+
+    private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>();
+
+    static void begin() {
+        CURRENT.set(new long[5]);
+    }
+
+    static void add(int phase, long nanos) {
+        long[] t = CURRENT.get();
+        if (t != null) t[phase] += nanos;
+    }
+
+    static long get(int phase) {
+        long[] t = CURRENT.get();
+        return t == null ? 0 : t[phase];
+    }
+
+    /**
+     * 结束计时并写入 timing；downloadNanos 为读取响应体的耗时
+     */
+    static void end(WireTiming timing, long downloadNanos) {
+        long[] t = CURRENT.get();
+        CURRENT.remove();
+        if (t == null || timing == null) return;
+        timing.setDnsMs(ms(t[DNS]));
+        timing.setConnectMs(ms(t[CONNECT]));
+        timing.setTlsMs(ms(t[TLS]));
+        timing.setWriteMs(ms(t[WRITE]));
+        timing.setTtfbMs(ms(t[TTFB]));
+        timing.setDownloadMs(ms(downloadNanos));
+        timing.setReusedConnection(t[DNS] == 0 && t[CONNECT] == 0);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static class TimedPlainSocketFactory extends PlainConnectionSocketFactory {
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                    InetSocketAddress localAddress, HttpContext context) throws IOException {
+            long s = System.nanoTime();
+            try {
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            } finally {
+                add(CONNECT, System.nanoTime() - s);
+            }
+        }
+    }
+
+    /**
+     * connectSocket 内含 TCP 建连与 TLS 握手（createLayeredSocket），建连耗时扣除其中的握手部分
+     */
+    static class TimedSslSocketFactory extends SSLConnectionSocketFactory {
+        TimedSslSocketFactory(SSLContext sslContext) {
+            super(sslContext, getDefaultHostnameVerifier());
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                    InetSocketAddress localAddress, HttpContext context) throws IOException {
+            long tlsBefore = get(WireTimer.TLS);
+            long s = System.nanoTime();
+            try {
+                return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            } finally {
+                add(CONNECT, System.nanoTime() - s - (get(WireTimer.TLS) - tlsBefore));
+            }
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            long s = System.nanoTime();
+            try {
+                return super.createLayeredSocket(socket, target, port, context);
+            } finally {
+                add(WireTimer.TLS, System.nanoTime() - s);
+            }
+        }
+    }
+
+    static class TimedRequestExecutor extends HttpRequestExecutor {
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws IOException, HttpException {
+            long s = System.nanoTime();
+            try {
+                return super.doSendRequest(request, conn, context);
+            } finally {
+                add(WRITE, System.nanoTime() - s);
+            }
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws HttpException, IOException {
+            long s = System.nanoTime();
+            try {
+                return super.doReceiveResponse(request, conn, context);
+            } finally {
+                add(TTFB, System.nanoTime() - s);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.apitest.basetestcase;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * ApiHttpResponse 落盘临时文件的清理：close() 与读取失败时删除
+ */
+public class ApiHttpResponseTest {
+
+    /** 超过默认落盘阈值（8MB） */
+    private static final long SPILL_SIZE = 9L * 1024 * 1024;
+
+    /** 产生 size 个字节 'a'，failAtEnd 为 true 时在末尾抛出 IOException */
+    private static InputStream bytes(long size, boolean failAtEnd) {
+        return new InputStream() {
+            private long remaining = size;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0];
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    if (failAtEnd) throw new IOException("connection reset");
+                    return -1;
+                }
+                int n = (int) Math.min(len, remaining);
+                for (int i = 0; i < n; i++) b[off + i] = 'a';
+                remaining -= n;
+                return n;
+            }
+        };
+    }
+
+    private static Set<Path> spillFiles() throws IOException {
+        Set<Path> files = new HashSet<>();
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(tmp, "api-response-*.body")) {
+            for (Path p : ds) files.add(p);
+        }
+        return files;
+    }
+
+    @Test
+    public void testCloseDeletesSpilledFile() throws IOException {
+        ApiHttpResponse response = ApiHttpResponse.capture(200, bytes(SPILL_SIZE, false), null,
+                StandardCharsets.UTF_8, 0, null, null);
+        Assert.assertTrue(response.isSpilledToFile());
+        Path file = response.getBodyFile();
+        Assert.assertTrue(Files.exists(file));
+        Assert.assertEquals(response.getBodyBytes().length, SPILL_SIZE);
+
+        response.close();
+        Assert.assertFalse(Files.exists(file));
+        response.close();
+        try {
+            response.getBodyBytes();
+            Assert.fail("关闭后读取应失败");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFailedCaptureDeletesSpilledFile() throws IOException {
+        Set<Path> before = spillFiles();
+        try {
+            ApiHttpResponse.capture(200, bytes(SPILL_SIZE, true), null, StandardCharsets.UTF_8, 0, null, null);
+            Assert.fail("读取失败应抛出 IOException");
+        } catch (IOException expected) {
+            // expected
+        }
+        Set<Path> leaked = spillFiles();
+        leaked.removeAll(before);
+        Assert.assertTrue(leaked.isEmpty(), "残留临时文件: " + leaked);
+    }
+
+    @Test
+    public void testInMemoryResponseCloseIsNoop() throws IOException {
+        ApiHttpResponse response = ApiHttpResponse.capture(200, bytes(16, false), null,
+                StandardCharsets.UTF_8, 0, null, null);
+        Assert.assertFalse(response.isSpilledToFile());
+        response.close();
+        Assert.assertEquals(response.getBody(), "aaaaaaaaaaaaaaaa");
+    }
+}
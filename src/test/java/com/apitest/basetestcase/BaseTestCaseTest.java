@@ -0,0 +1,79 @@
+package com.apitest.basetestcase;
+
+import com.apitest.core.ApiRequestModel;
+import com.apitest.mock.SwaggerMockServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BaseTestCase.executeBatch 单项失败隔离：解析失败、发送失败不影响其余请求，也不占用并发许可
+ */
+public class BaseTestCaseTest {
+
+    private SwaggerMockServer server;
+
+    @BeforeClass
+    public void start() throws Exception {
+        server = new SwaggerMockServer().start(0);
+    }
+
+    @AfterClass
+    public void stop() {
+        if (server != null) server.stop();
+    }
+
+    /** apiInfo 中的 url 直接作为请求地址，fail=true 时解析阶段抛出异常 */
+    private static class BatchCase extends BaseTestCase {
+        @Override
+        protected ApiRequestModel prepareRequest(Map<String, Object> rawApiInfo, Map<String, Object> caseVars) {
+            if (Boolean.TRUE.equals(rawApiInfo.get("fail"))) throw new IllegalArgumentException("bad apiInfo");
+            return new ApiRequestModel((String) rawApiInfo.get("url"), "GET", new HashMap<>(), null);
+        }
+    }
+
+    private static Map<String, Object> api(String url, boolean fail) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("url", url);
+        m.put("fail", fail);
+        return m;
+    }
+
+    @Test
+    public void testFailuresAreIsolated() {
+        String ok = "http://127.0.0.1:" + server.getPort() + "/missing";
+        List<Map<String, Object>> apis = new ArrayList<>();
+        apis.add(api(ok, false));
+        apis.add(api(ok, true));
+        apis.add(api("http://127.0.0.1:1/refused", false));
+        apis.add(api("not a url", false));
+        apis.add(api(ok, false));
+
+        // 并发为 1：失败项若未归还许可，后续请求会一直阻塞
+        BatchResult result = new BatchCase().executeBatch(apis, Collections.emptyMap(), 1);
+
+        Assert.assertEquals(result.size(), 5);
+        Assert.assertEquals(result.getFailures().keySet(), new HashSet<>(Arrays.asList(1, 2, 3)));
+        Assert.assertTrue(result.getFailures().get(1) instanceof IllegalArgumentException);
+        Assert.assertEquals(result.get(0).getStatusCode(), 404);
+        Assert.assertEquals(result.get(4).getStatusCode(), 404);
+        Assert.assertNull(result.get(1));
+        Assert.assertNull(result.get(2));
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        BatchResult result = new BatchCase().executeBatch(null, Collections.emptyMap(), 4);
+        Assert.assertEquals(result.size(), 0);
+        Assert.assertTrue(result.isAllSuccess());
+    }
+}
@@ -0,0 +1,105 @@
+package com.apitest.basetestcase;
+
+import com.apitest.core.VariableScope;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CompiledTemplate 与原正则实现 \{([^{}]+)\} 的解析结果一致：变量名去除首尾空白、点路径、取不到值时为空串
+ */
+public class CompiledTemplateTest {
+
+    private static final Pattern VAR_PATTERN = Pattern.compile("\\{([^{}]+)\\}");
+
+    private final Map<String, Object> vars = vars();
+
+    private static Map<String, Object> vars() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("c", "C");
+        nested.put("d", Collections.singletonMap("e", 1));
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a", "A");
+        vars.put("b", nested);
+        vars.put("x y", "XY");
+        vars.put("dollar", "$1\\");
+        vars.put("", "EMPTY");
+        return vars;
+    }
+
+    /** 原 BaseTestCase.resolveString 的实现 */
+    private static String legacy(String template, Map<String, Object> vars) {
+        Matcher m = VAR_PATTERN.matcher(template);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            Object val = readByDotPath(vars, m.group(1).trim());
+            m.appendReplacement(sb, Matcher.quoteReplacement(val == null ? "" : String.valueOf(val)));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object readByDotPath(Map<String, Object> src, String path) {
+        Object cur = src;
+        for (String p : path.split("\\.")) {
+            if (!(cur instanceof Map)) return null;
+            cur = ((Map<String, Object>) cur).get(p);
+            if (cur == null) return null;
+        }
+        return cur;
+    }
+
+    private String render(String template) {
+        VariableScope scope = VariableScope.suite().child(VariableScope.Level.CASE, vars);
+        return CompiledTemplate.compile(template).render(scope);
+    }
+
+    @DataProvider(name = "templates")
+    public Object[][] templates() {
+        return new Object[][]{
+                {"plain"}, {""}, {"{a}"}, {"{ a }"}, {"x{a}y{b.c}z"}, {"{b.d.e}"}, {"{b.c.x}"}, {"{a.b}"},
+                {"{missing}"}, {"{b}"}, {"{x y}"}, {"{ x y }"}, {"{dollar}"}, {"{}"}, {"{ }"}, {"{{a}}"},
+                {"{a"}, {"a}"}, {"}{a}{"}, {"{a{b}c}"}, {"{a}{a}"}, {"{\"k\":\"{a}\"}"}, {"{.}"}, {"{a.}"}, {"{.a}"},
+        };
+    }
+
+    @Test(dataProvider = "templates")
+    public void testMatchesRegexImplementation(String template) {
+        Assert.assertEquals(render(template), legacy(template, vars), template);
+    }
+
+    @Test
+    public void testRandomTemplatesMatchRegexImplementation() {
+        char[] alphabet = {'{', '}', 'a', 'b', 'c', '.', ' ', 'x'};
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = random.nextInt(14);
+            for (int k = 0; k < len; k++) sb.append(alphabet[random.nextInt(alphabet.length)]);
+            String template = sb.toString();
+            Assert.assertEquals(render(template), legacy(template, vars), template);
+        }
+    }
+
+    @Test
+    public void testResolutionSemantics() {
+        Assert.assertEquals(render("id={ a }"), "id=A");
+        Assert.assertEquals(render("{b.d.e}"), "1");
+        Assert.assertEquals(render("[{missing}]"), "[]");
+        Assert.assertEquals(render("{dollar}"), "$1\\");
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        Assert.assertSame(CompiledTemplate.compile("cached {a}"), CompiledTemplate.compile("cached {a}"));
+    }
+}
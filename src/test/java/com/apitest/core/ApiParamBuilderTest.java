@@ -0,0 +1,110 @@
+package com.apitest.core;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ApiParamBuilder 路径参数与查询参数组装
+ */
+public class ApiParamBuilderTest {
+
+    private static Map<String, Object> swaggerApi() {
+        Map<String, Object> api = new HashMap<>();
+        api.put("host", "https://h.example.com/");
+        api.put("path", "/workspace/{id}/items/{itemId}");
+        Map<String, Object> id = new HashMap<>();
+        id.put("name", "id");
+        id.put("value", "a b/c");
+        Map<String, Object> itemId = new HashMap<>();
+        itemId.put("name", "itemId");
+        Map<String, Object> pathParameters = new HashMap<>();
+        pathParameters.put("id", id);
+        pathParameters.put("itemId", itemId);
+        api.put("pathParameters", pathParameters);
+        Map<String, Object> page = new HashMap<>();
+        page.put("value", "x&y");
+        Map<String, Object> queryParameters = new LinkedHashMap<>();
+        queryParameters.put("page", page);
+        queryParameters.put("size", new HashMap<>());
+        api.put("queryParameters", queryParameters);
+        return api;
+    }
+
+    private static VariableScope scope(String key, Object value) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put(key, value);
+        return VariableScope.suite().child(VariableScope.Level.CASE, vars);
+    }
+
+    @Test
+    public void testSwaggerPathAndQueryParameters() throws Exception {
+        Map<String, Object> api = swaggerApi();
+        api.put("sendQueryParameters", true);
+        VariableScope scope = scope("itemId", 42);
+        Assert.assertEquals(ApiParamBuilder.buildUrl(api, scope), "https://h.example.com/workspace/a%20b%2Fc/items/42?page=x%26y");
+        Assert.assertEquals(ApiParamBuilder.buildPath(api, scope), "/workspace/a%20b%2Fc/items/42");
+    }
+
+    @Test
+    public void testQueryParametersAreNotSentByDefault() throws Exception {
+        Assert.assertEquals(ApiParamBuilder.buildUrl(swaggerApi(), scope("itemId", 42)), "https://h.example.com/workspace/a%20b%2Fc/items/42");
+    }
+
+    @Test
+    public void testUndeclaredVariablesKeepReservedCharacters() {
+        Map<String, Object> api = swaggerApi();
+        api.put("path", "{basePath}/workspace/{id}");
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("basePath", "/api/v1");
+        vars.put("id", "a/b");
+        VariableScope scope = VariableScope.suite().child(VariableScope.Level.CASE, vars);
+        Assert.assertEquals(ApiParamBuilder.buildPath(api, scope), "/api/v1/workspace/a%2Fb");
+        Assert.assertEquals(ApiParamBuilder.resolvePath("{basePath}/workspace/{id}", (Map<?, ?>) api.get("pathParameters"), scope),
+                "/api/v1/workspace/a%2Fb");
+        Assert.assertEquals(ApiParamBuilder.resolvePath("{basePath}/x", scope("basePath", "/a b")), "/a%20b/x");
+    }
+
+    @Test
+    public void testScopeTakesPrecedenceOverPathParameters() {
+        Assert.assertEquals(ApiParamBuilder.buildPath(swaggerApi(), scope("id", "w1")), "/workspace/w1/items/");
+    }
+
+    @Test
+    public void testPostmanPathVariablesAndLegacyQuery() throws Exception {
+        Map<String, Object> api = new LinkedHashMap<>();
+        api.put("host", "https://p.example.com");
+        api.put("path", "/users/:userId/{{ tag }}/x");
+        Map<String, Object> pathVars = new LinkedHashMap<>();
+        pathVars.put("userId", "u1");
+        api.put("pathParameters", pathVars);
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("k", "v v");
+        api.put("query", query);
+        api.put("queryParameters", query);
+        Assert.assertEquals(ApiParamBuilder.buildUrl(api, scope("tag", "t1")), "https://p.example.com/users/u1/t1/x?k=v+v");
+    }
+
+    @Test
+    public void testStaticPathUnchanged() throws Exception {
+        Map<String, Object> api = new HashMap<>();
+        api.put("host", "https://a");
+        api.put("path", "static/p q");
+        api.put("query", "a=1");
+        Assert.assertEquals(ApiParamBuilder.buildUrl(api), "https://a/static/p q?a=1");
+    }
+
+    @Test
+    public void testResolvePathThenBuildUrlWithoutScope() throws Exception {
+        // resolveApiInfo 先用变量解析 path，再由 buildUrl(apiInfo) 按 pathParameters 展开剩余参数
+        Map<String, Object> api = swaggerApi();
+        api.put("path", ApiParamBuilder.resolvePath("/workspace/{workspace_id}/items/{itemId}", scope("workspace_id", "w 1")));
+        Assert.assertEquals(api.get("path"), "/workspace/w%201/items/{itemId}");
+        api.put("sendQueryParameters", "true");
+        ((Map<String, Object>) ((Map<String, Object>) api.get("pathParameters")).get("itemId")).put("value", 7);
+        Assert.assertEquals(ApiParamBuilder.buildUrl(api), "https://h.example.com/workspace/w%201/items/7?page=x%26y");
+    }
+}
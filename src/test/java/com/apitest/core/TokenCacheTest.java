@@ -0,0 +1,133 @@
+package com.apitest.core;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * TokenCache 加密落盘、命中判定与并发刷新时只访问一次 tokenUrl
+ */
+public class TokenCacheTest {
+
+    private static final String URL = "http://example.test/token";
+
+    private Path dir;
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("token-cache-");
+        // token.cache.dir 取自 ${TOKEN_CACHE_DIR:}
+        System.setProperty("TOKEN_CACHE_DIR", dir.toString());
+        remoteCalls.set(0);
+    }
+
+    @AfterMethod
+    public void deleteDir() throws IOException {
+        System.clearProperty("TOKEN_CACHE_DIR");
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private Callable<TokenCache.Entry> remote(String token) {
+        return () -> {
+            remoteCalls.incrementAndGet();
+            long now = System.currentTimeMillis();
+            return new TokenCache.Entry(token, now, now + 3600_000);
+        };
+    }
+
+    private List<Path> files() throws IOException {
+        List<Path> list = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(list::add);
+        }
+        return list;
+    }
+
+    @Test
+    public void testSecondLoadHitsCache() throws Exception {
+        TokenCache.Entry first = TokenCache.load(URL, "key", "secret", e -> true, remote("tok-1"));
+        TokenCache.Entry second = TokenCache.load(URL, "key", "secret", e -> true, remote("tok-2"));
+        Assert.assertEquals(first.token, "tok-1");
+        Assert.assertEquals(second.token, "tok-1");
+        Assert.assertEquals(second.expiresAt, first.expiresAt);
+        Assert.assertEquals(remoteCalls.get(), 1);
+    }
+
+    @Test
+    public void testFileIsEncrypted() throws Exception {
+        TokenCache.load(URL, "key", "secret", e -> true, remote("plain-token-value"));
+        List<Path> files = files();
+        Assert.assertEquals(files.size(), 1);
+        String content = new String(Files.readAllBytes(files.get(0)), StandardCharsets.ISO_8859_1);
+        Assert.assertFalse(content.contains("plain-token-value"), "缓存文件不应包含明文 Token");
+    }
+
+    @Test
+    public void testOtherSecretCannotDecrypt() throws Exception {
+        TokenCache.load(URL, "key", "secret", e -> true, remote("tok-1"));
+        // 同一文件，换了 appSecret 后解密失败按未命中处理
+        TokenCache.Entry other = TokenCache.load(URL, "key", "changed", e -> true, remote("tok-2"));
+        Assert.assertEquals(other.token, "tok-2");
+        Assert.assertEquals(remoteCalls.get(), 2);
+    }
+
+    @Test
+    public void testRejectedEntryIsReplaced() throws Exception {
+        TokenCache.load(URL, "key", "secret", e -> true, remote("tok-1"));
+        TokenCache.Entry fresh = TokenCache.load(URL, "key", "secret", e -> !"tok-1".equals(e.token), remote("tok-2"));
+        Assert.assertEquals(fresh.token, "tok-2");
+        Assert.assertEquals(TokenCache.load(URL, "key", "secret", e -> true, remote("tok-3")).token, "tok-2");
+        Assert.assertEquals(remoteCalls.get(), 2);
+    }
+
+    @Test
+    public void testCorruptFileIsMiss() throws Exception {
+        TokenCache.load(URL, "key", "secret", e -> true, remote("tok-1"));
+        Files.write(files().get(0), "garbage".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(TokenCache.load(URL, "key", "secret", e -> true, remote("tok-2")).token, "tok-2");
+    }
+
+    @Test
+    public void testConcurrentLoadsFetchOnce() throws Exception {
+        int callers = 8;
+        Callable<TokenCache.Entry> slow = () -> {
+            Thread.sleep(100);
+            return remote("tok-" + System.nanoTime()).call();
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<TokenCache.Entry>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> TokenCache.load(URL, "key", "secret", e -> true, slow)));
+            }
+            String token = null;
+            for (Future<TokenCache.Entry> f : results) {
+                String t = f.get(10, TimeUnit.SECONDS).token;
+                if (token == null) token = t;
+                Assert.assertEquals(t, token);
+            }
+            Assert.assertEquals(remoteCalls.get(), 1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
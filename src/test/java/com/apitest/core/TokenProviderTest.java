@@ -0,0 +1,145 @@
+package com.apitest.core;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TokenProvider 单飞刷新、过期重取与按 Token 值丢弃
+ */
+public class TokenProviderTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String tokenUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    /** 服务端返回的 expires_in（秒），为负时不返回 access_token */
+    private volatile long expiresIn;
+    private volatile CountDownLatch release;
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/token", exchange -> {
+            int n = requests.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String json = expiresIn < 0 ? "{}" : "{\"access_token\":\"t" + n + "\",\"expires_in\":" + expiresIn + "}";
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        tokenUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/token";
+    }
+
+    @AfterClass
+    public void stopServer() {
+        if (server != null) server.stop(0);
+        if (serverExecutor != null) serverExecutor.shutdownNow();
+    }
+
+    @BeforeMethod
+    public void reset() {
+        requests.set(0);
+        expiresIn = 3600;
+        release = new CountDownLatch(0);
+    }
+
+    private TokenProvider.TokenSource source() {
+        return new TokenProvider.TokenSource("test", "key", "secret", tokenUrl);
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneFetch() throws Exception {
+        release = new CountDownLatch(1);
+        TokenProvider.TokenSource source = source();
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) results.add(pool.submit(source::get));
+            // 等待首个请求到达服务端后再放行，保证其余调用方都遇到进行中的刷新
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (requests.get() == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+            Thread.sleep(100);
+            release.countDown();
+            Set<String> tokens = new HashSet<>();
+            for (Future<String> f : results) tokens.add(f.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(tokens.size(), 1, "并发调用方应拿到同一个 Token: " + tokens);
+            Assert.assertEquals(requests.get(), 1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testValidTokenIsReused() {
+        TokenProvider.TokenSource source = source();
+        Assert.assertEquals(source.get(), "t1");
+        Assert.assertEquals(source.get(), "t1");
+        Assert.assertEquals(requests.get(), 1);
+    }
+
+    @Test
+    public void testExpiredTokenIsFetchedAgain() {
+        // 有效期不超过 1 分钟的 Token 取得时即视为过期，每次使用按需获取
+        expiresIn = 30;
+        TokenProvider.TokenSource source = source();
+        Assert.assertEquals(source.get(), "t1");
+        Assert.assertEquals(source.get(), "t2");
+        Assert.assertEquals(requests.get(), 2);
+    }
+
+    @Test
+    public void testInvalidateOnlyMatchingToken() {
+        TokenProvider.TokenSource source = source();
+        Assert.assertEquals(source.get(), "t1");
+        source.invalidate("stale");
+        Assert.assertEquals(source.get(), "t1");
+        source.invalidate("t1");
+        Assert.assertEquals(source.get(), "t2");
+        Assert.assertEquals(requests.get(), 2);
+    }
+
+    @Test
+    public void testFailedFetchIsRetriedOnNextCall() {
+        expiresIn = -1;
+        TokenProvider.TokenSource source = source();
+        try {
+            source.get();
+            Assert.fail("响应缺少 access_token 时应失败");
+        } catch (RuntimeException expected) {
+            // expected
+        }
+        expiresIn = 3600;
+        Assert.assertEquals(source.get(), "t2");
+        Assert.assertEquals(requests.get(), 2);
+    }
+}
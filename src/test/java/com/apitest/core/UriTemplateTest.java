@@ -0,0 +1,103 @@
+package com.apitest.core;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * UriTemplate 与 RFC 6570 第 3 节示例对照
+ */
+public class UriTemplateTest {
+
+    private static Map<String, Object> variables() {
+        Map<String, Object> v = new HashMap<>();
+        v.put("count", Arrays.asList("one", "two", "three"));
+        v.put("dom", Arrays.asList("example", "com"));
+        v.put("dub", "me/too");
+        v.put("hello", "Hello World!");
+        v.put("half", "50%");
+        v.put("var", "value");
+        v.put("who", "fred");
+        v.put("base", "http://example.com/home/");
+        v.put("path", "/foo/bar");
+        v.put("list", Arrays.asList("red", "green", "blue"));
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("semi", ";");
+        keys.put("dot", ".");
+        keys.put("comma", ",");
+        v.put("keys", keys);
+        v.put("v", "6");
+        v.put("x", "1024");
+        v.put("y", "768");
+        v.put("empty", "");
+        v.put("empty_keys", new HashMap<>());
+        return v;
+    }
+
+    @DataProvider(name = "rfcExamples")
+    public Object[][] rfcExamples() {
+        return new Object[][]{
+                // 3.2.2 简单展开
+                {"{var}", "value"}, {"{hello}", "Hello%20World%21"}, {"{half}", "50%25"},
+                {"O{empty}X", "OX"}, {"O{undef}X", "OX"}, {"{x,y}", "1024,768"},
+                {"{x,hello,y}", "1024,Hello%20World%21,768"}, {"?{x,empty}", "?1024,"}, {"?{x,undef}", "?1024"},
+                {"{var:3}", "val"}, {"{list}", "red,green,blue"}, {"{list*}", "red,green,blue"},
+                {"{keys}", "semi,%3B,dot,.,comma,%2C"}, {"{keys*}", "semi=%3B,dot=.,comma=%2C"},
+                // 3.2.3 保留字展开
+                {"{+var}", "value"}, {"{+hello}", "Hello%20World!"}, {"{+half}", "50%25"},
+                {"{base}index", "http%3A%2F%2Fexample.com%2Fhome%2Findex"}, {"{+base}index", "http://example.com/home/index"},
+                {"{+path}/here", "/foo/bar/here"}, {"here?ref={+path}", "here?ref=/foo/bar"}, {"{+keys*}", "semi=;,dot=.,comma=,"},
+                // 3.2.4 片段
+                {"{#var}", "#value"}, {"{#hello}", "#Hello%20World!"}, {"{#path:6}/here", "#/foo/b/here"},
+                // 3.2.5 ~ 3.2.9
+                {"X{.var}", "X.value"}, {"X{.x,y}", "X.1024.768"}, {"www{.dom*}", "www.example.com"},
+                {"{/var}", "/value"}, {"{/var,x}/here", "/value/1024/here"}, {"{/list*,path:4}", "/red/green/blue/%2Ffoo"},
+                {"{/count}", "/one,two,three"}, {"{/count*}", "/one/two/three"},
+                {"{;x,y}", ";x=1024;y=768"}, {"{;x,y,empty}", ";x=1024;y=768;empty"},
+                {"{;count}", ";count=one,two,three"}, {"{;count*}", ";count=one;count=two;count=three"},
+                {"{?x,y}", "?x=1024&y=768"}, {"{?x,y,empty}", "?x=1024&y=768&empty="},
+                {"{?count}", "?count=one,two,three"}, {"{?count*}", "?count=one&count=two&count=three"},
+                {"{?keys*}", "?semi=%3B&dot=.&comma=%2C"}, {"{?empty_keys}", ""},
+                {"?fixed=yes{&x}", "?fixed=yes&x=1024"}, {"{&var:3}", "&var=val"}, {"{&count*}", "&count=one&count=two&count=three"},
+                // 非法表达式按字面量处理，字面量按 UTF-8 百分号编码
+                {"/ws/{id}/{{x}", "/ws//%7B1024"}, {"a b/中", "a%20b/%E4%B8%AD"},
+                // 字面量中已编码的 %XX 保留，不重复编码
+                {"/w%201{/x}", "/w%201/1024"}, {"/50%{/x}", "/50%25/1024"},
+        };
+    }
+
+    @Test(dataProvider = "rfcExamples")
+    public void testRfcExamples(String template, String expected) {
+        Assert.assertEquals(UriTemplate.compile(template).expand(variables()), expected, template);
+    }
+
+    @Test
+    public void testCompileIsCached() {
+        Assert.assertSame(UriTemplate.compile("/a/{b}"), UriTemplate.compile("/a/{b}"));
+    }
+
+    @Test
+    public void testVariableNames() {
+        Assert.assertEquals(Arrays.asList(UriTemplate.compile("/w/{id}/i{?page,size}").getVariableNames()),
+                Arrays.asList("id", "page", "size"));
+    }
+
+    @Test
+    public void testExpandPartialKeepsUndefinedExpressions() {
+        Map<String, Object> v = new HashMap<>();
+        v.put("id", "a b");
+        UriTemplate t = UriTemplate.compile("/ws/{id}/items/{itemId}");
+        Assert.assertEquals(t.expandPartial(v::get), "/ws/a%20b/items/{itemId}");
+        Assert.assertEquals(t.expand(v), "/ws/a%20b/items/");
+    }
+
+    @Test
+    public void testNullValuesMap() {
+        Assert.assertEquals(UriTemplate.compile("/a/{b}").expand((Map<String, ?>) null), "/a/");
+    }
+}
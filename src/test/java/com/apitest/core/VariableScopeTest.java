@@ -0,0 +1,93 @@
+package com.apitest.core;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * VariableScope 查找优先级与查找缓存的失效
+ */
+public class VariableScopeTest {
+
+    private static Map<String, Object> map(Object... kv) {
+        Map<String, Object> m = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put((String) kv[i], kv[i + 1]);
+        return m;
+    }
+
+    @Test
+    public void testInnerLayerWins() {
+        VariableScope env = VariableScope.suite().child(VariableScope.Level.ENV, map("host", "env", "a", "env"));
+        VariableScope module = env.child(VariableScope.Level.MODULE, map("a", "module"));
+        VariableScope c = module.child(VariableScope.Level.CASE, map("a", "case"));
+        Assert.assertEquals(c.get("a"), "case");
+        Assert.assertEquals(module.get("a"), "module");
+        Assert.assertEquals(c.get("host"), "env");
+        Assert.assertNull(c.get("missing"));
+    }
+
+    @Test
+    public void testDotPathFallsThroughToOuterLayer() {
+        VariableScope outer = VariableScope.suite().child(VariableScope.Level.ENV,
+                map("db", map("host", "h", "port", 3306)));
+        VariableScope inner = outer.child(VariableScope.Level.CASE, map("db", map("host", "inner")));
+        Assert.assertEquals(inner.get("db.host"), "inner");
+        Assert.assertEquals(inner.get("db.port"), 3306);
+        Assert.assertNull(inner.get("db.host.x"));
+    }
+
+    @Test
+    public void testPutInvalidatesChildLookups() {
+        VariableScope module = VariableScope.suite().child(VariableScope.Level.MODULE, map("a", "1"));
+        VariableScope c = module.child(VariableScope.Level.CASE, null);
+        Assert.assertEquals(c.get("a"), "1");
+        Assert.assertNull(c.get("b"));
+        module.put("a", "2").put("b", "3");
+        Assert.assertEquals(c.get("a"), "2");
+        Assert.assertEquals(c.get("b"), "3");
+    }
+
+    @Test
+    public void testPutIsCopyOnWrite() {
+        Map<String, Object> vars = map("a", "1");
+        VariableScope module = VariableScope.suite().child(VariableScope.Level.MODULE, vars);
+        Map<String, Object> before = module.getVars();
+        module.put("a", "2");
+        Assert.assertEquals(vars.get("a"), "1");
+        Assert.assertEquals(before.get("a"), "1");
+        Assert.assertEquals(module.get("a"), "2");
+    }
+
+    @Test
+    public void testDirectMutationNeedsInvalidate() {
+        Map<String, Object> vars = map("a", "1");
+        VariableScope module = VariableScope.suite().child(VariableScope.Level.MODULE, vars);
+        VariableScope c = module.child(VariableScope.Level.CASE, null);
+        Assert.assertEquals(c.get("a"), "1");
+        vars.put("a", "2");
+        Assert.assertEquals(c.get("a"), "1", "未调用 invalidate 时子作用域读取缓存");
+        module.invalidate();
+        Assert.assertEquals(c.get("a"), "2");
+    }
+
+    @Test
+    public void testLiveChildSeesDirectMutation() {
+        Map<String, Object> env = map("a", "env");
+        Map<String, Object> module = new HashMap<>();
+        VariableScope runtime = VariableScope.suite().liveChild(VariableScope.Level.ENV, env)
+                .liveChild(VariableScope.Level.MODULE, module)
+                .child(VariableScope.Level.MODULE, null);
+        VariableScope c = runtime.child(VariableScope.Level.CASE, Collections.emptyMap());
+        Assert.assertEquals(c.get("a"), "env");
+        module.put("a", "module");
+        Assert.assertEquals(c.get("a"), "module");
+        env.put("b", "added");
+        Assert.assertEquals(c.get("b"), "added");
+        runtime.put("a", "runtime");
+        module.put("a", "module2");
+        Assert.assertEquals(c.get("a"), "runtime");
+    }
+}
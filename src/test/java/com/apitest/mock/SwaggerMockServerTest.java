@@ -0,0 +1,92 @@
+package com.apitest.mock;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SwaggerMockServer 请求体解析：分块请求体与 HEAD 响应
+ */
+public class SwaggerMockServerTest {
+
+    private SwaggerMockServer server;
+
+    @BeforeClass
+    public void start() throws IOException {
+        server = new SwaggerMockServer().start(0);
+    }
+
+    @AfterClass
+    public void stop() {
+        if (server != null) server.stop();
+    }
+
+    /** 读取一个响应：响应头加 Content-Length 指定长度的响应体（HEAD 时不读响应体） */
+    private static String readResponse(InputStream in, boolean head) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            buf.write(b);
+            String s = buf.toString("ISO-8859-1");
+            if (s.endsWith("\r\n\r\n")) break;
+        }
+        String headers = buf.toString("ISO-8859-1");
+        int length = 0;
+        for (String line : headers.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) length = Integer.parseInt(line.substring(15).trim());
+        }
+        if (!head) {
+            for (int i = 0; i < length; i++) buf.write(in.read());
+        }
+        return buf.toString("ISO-8859-1");
+    }
+
+    @Test
+    public void testChunkedBodyIsDrainedAndConnectionReused() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write(("POST /missing HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "5;ext=1\r\nhello\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            Thread.sleep(50);
+            out.write("6\r\n world\r\n0\r\nX-Trailer: t\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            String first = readResponse(in, false);
+            Assert.assertTrue(first.startsWith("HTTP/1.1 404"), first);
+            Assert.assertTrue(first.contains("Connection: keep-alive"), first);
+
+            // 同一连接上的下一个请求不应被分块数据干扰
+            out.write("GET /missing HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            Assert.assertTrue(readResponse(in, false).startsWith("HTTP/1.1 404"));
+        }
+    }
+
+    @Test
+    public void testHeadHasNoBody() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write(("HEAD /missing HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "GET /missing HTTP/1.1\r\nHost: x\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            String head = readResponse(in, true);
+            Assert.assertTrue(head.startsWith("HTTP/1.1 404"), head);
+            // HEAD 之后紧跟的是下一个响应的状态行，而不是响应体
+            String next = readResponse(in, false);
+            Assert.assertTrue(next.startsWith("HTTP/1.1 404"), next);
+            Assert.assertTrue(next.endsWith("}"), next);
+        }
+    }
+}
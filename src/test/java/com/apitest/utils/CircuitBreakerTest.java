@@ -0,0 +1,139 @@
+package com.apitest.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * CircuitBreaker 状态转换与试探名额
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 50;
+
+    /** 窗口 4、至少 4 次、失败率 50%、慢调用 1000ms、打开 50ms、半开试探 2 次 */
+    private CircuitBreaker newBreaker() {
+        return new CircuitBreaker("http://test", 4, 4, 50, 100, 1000, OPEN_MS, 2);
+    }
+
+    private void call(CircuitBreaker breaker, boolean failed) {
+        breaker.record(breaker.acquire(), failed, 1);
+    }
+
+    private void open(CircuitBreaker breaker) {
+        for (int i = 0; i < 4; i++) call(breaker, true);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 3; i++) call(breaker, true);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = newBreaker();
+        call(breaker, false);
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, true);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void testOpensOnSlowCalls() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 4; i++) breaker.record(breaker.acquire(), false, 2000);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void testOpenFailsFast() {
+        CircuitBreaker breaker = newBreaker();
+        open(breaker);
+        try {
+            breaker.acquire();
+            Assert.fail("熔断打开时应快速失败");
+        } catch (CircuitBreaker.CircuitOpenException e) {
+            Assert.assertEquals(e.getHost(), "http://test");
+        }
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterSuccessfulProbes() throws Exception {
+        CircuitBreaker breaker = newBreaker();
+        open(breaker);
+        Thread.sleep(OPEN_MS + 20);
+        CircuitBreaker.Permit p1 = breaker.acquire();
+        CircuitBreaker.Permit p2 = breaker.acquire();
+        Assert.assertTrue(p1.isProbe());
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.HALF_OPEN);
+        try {
+            breaker.acquire();
+            Assert.fail("试探名额用尽时应快速失败");
+        } catch (CircuitBreaker.CircuitOpenException expected) {
+            // 预期
+        }
+        breaker.record(p1, false, 1);
+        breaker.record(p2, false, 1);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+        Assert.assertFalse(breaker.acquire().isProbe());
+    }
+
+    @Test
+    public void testHalfOpenReopensOnFailedProbe() throws Exception {
+        CircuitBreaker breaker = newBreaker();
+        open(breaker);
+        Thread.sleep(OPEN_MS + 20);
+        breaker.record(breaker.acquire(), true, 1);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void testReleasedProbeSlotIsReusable() throws Exception {
+        CircuitBreaker breaker = newBreaker();
+        open(breaker);
+        Thread.sleep(OPEN_MS + 20);
+        // 两个试探都未产生结果（中断、被对冲中止等），名额归还后仍可继续试探
+        breaker.release(breaker.acquire());
+        breaker.release(breaker.acquire());
+        call(breaker, false);
+        call(breaker, false);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void testClosedCallFinishingDuringHalfOpenIsNotAProbe() throws Exception {
+        CircuitBreaker breaker = newBreaker();
+        CircuitBreaker.Permit slow = breaker.acquire();
+        open(breaker);
+        Thread.sleep(OPEN_MS + 20);
+        CircuitBreaker.Permit probe = breaker.acquire();
+        // CLOSED 期间发出的慢请求在半开期间成功返回，不应计为试探成功
+        breaker.record(slow, false, 1);
+        breaker.record(probe, false, 1);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.HALF_OPEN);
+        call(breaker, false);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void testStaleProbeFromPreviousRoundIsIgnored() throws Exception {
+        CircuitBreaker breaker = newBreaker();
+        open(breaker);
+        Thread.sleep(OPEN_MS + 20);
+        CircuitBreaker.Permit stale = breaker.acquire();
+        breaker.record(breaker.acquire(), true, 1);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+        Thread.sleep(OPEN_MS + 20);
+        CircuitBreaker.Permit probe = breaker.acquire();
+        breaker.release(stale);
+        breaker.record(stale, false, 1);
+        breaker.record(probe, false, 1);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.HALF_OPEN);
+        // 上一轮的许可既不占用也不归还本轮名额：本轮还剩 1 个
+        call(breaker, false);
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,75 @@
+package com.apitest.utils;
+
+import com.apitest.basetestcase.ApiHttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ContentEncodingUtil 流式解压：空响应体与解压后的响应头
+ */
+public class ContentEncodingUtilTest {
+
+    private static byte[] gzip(String s) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+            gz.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return bos.toByteArray();
+    }
+
+    @Test
+    public void testEmptyGzipBodyIsEmpty() throws IOException {
+        InputStream in = ContentEncodingUtil.decode(new ByteArrayInputStream(new byte[0]), "gzip");
+        Assert.assertEquals(in.read(), -1);
+        Assert.assertEquals(in.read(new byte[16], 0, 16), -1);
+    }
+
+    @Test
+    public void testGzipBodyIsDecoded() throws IOException {
+        InputStream in = ContentEncodingUtil.decode(new ByteArrayInputStream(gzip("hello")), "gzip");
+        byte[] buf = new byte[16];
+        int n = in.read(buf, 0, buf.length);
+        Assert.assertEquals(new String(buf, 0, n, StandardCharsets.UTF_8), "hello");
+    }
+
+    @Test
+    public void testDecodesOnlyKnownCodings() {
+        Assert.assertTrue(ContentEncodingUtil.decodes("gzip"));
+        Assert.assertTrue(ContentEncodingUtil.decodes("deflate, gzip"));
+        Assert.assertFalse(ContentEncodingUtil.decodes("identity"));
+        Assert.assertFalse(ContentEncodingUtil.decodes("compress"));
+        Assert.assertFalse(ContentEncodingUtil.decodes(null));
+    }
+
+    @Test
+    public void testCaptureDropsEncodingHeaders() throws IOException {
+        byte[] wire = gzip("hello");
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("content-encoding", Collections.singletonList("gzip"));
+        headers.put("Content-Length", Collections.singletonList(String.valueOf(wire.length)));
+        headers.put("Content-Type", Collections.singletonList("text/plain"));
+        ApiHttpResponse response = ApiHttpResponse.capture(200, new ByteArrayInputStream(wire), "gzip",
+                StandardCharsets.UTF_8, 0, headers, null);
+        Assert.assertEquals(response.getBody(), "hello");
+        Assert.assertEquals(response.getWireBytes(), (long) wire.length);
+        Assert.assertEquals(response.getHeaders().keySet(), Collections.singleton("Content-Type"));
+    }
+
+    @Test
+    public void testCaptureEmptyGzipBody() throws IOException {
+        ApiHttpResponse response = ApiHttpResponse.capture(204, new ByteArrayInputStream(new byte[0]), "gzip",
+                StandardCharsets.UTF_8, 0, null, null);
+        Assert.assertEquals(response.getBodyLength(), 0L);
+    }
+}
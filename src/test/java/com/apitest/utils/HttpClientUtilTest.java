@@ -0,0 +1,86 @@
+package com.apitest.utils;
+
+import com.apitest.basetestcase.ApiHttpResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HttpClientUtil 响应截断：超过 maxCaptureBytes 时丢弃连接，不再下载剩余响应体
+ */
+public class HttpClientUtilTest {
+
+    private static final long LARGE_BODY = 256L * 1024 * 1024;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicLong written = new AtomicLong();
+    private volatile CountDownLatch finished = new CountDownLatch(1);
+
+    @BeforeClass
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/large", exchange -> {
+            byte[] chunk = new byte[64 * 1024];
+            Arrays.fill(chunk, (byte) 'a');
+            exchange.sendResponseHeaders(200, LARGE_BODY);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (long sent = 0; sent < LARGE_BODY; sent += chunk.length) {
+                    out.write(chunk);
+                    written.addAndGet(chunk.length);
+                }
+            } catch (IOException e) {
+                // 客户端丢弃连接
+            } finally {
+                exchange.close();
+                finished.countDown();
+            }
+        });
+        server.createContext("/small", exchange -> {
+            byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        HttpClientUtil.clearMaxCaptureBytes();
+        if (server != null) server.stop(0);
+    }
+
+    @Test
+    public void testTruncatedCaptureDiscardsConnection() throws Exception {
+        written.set(0);
+        finished = new CountDownLatch(1);
+        HttpClientUtil.setMaxCaptureBytes(1024);
+        try {
+            ApiHttpResponse response = HttpClientUtil.sendRequestWithMeta(baseUrl + "/large", "GET", null, null);
+            Assert.assertEquals(response.getStatusCode(), 200);
+            Assert.assertTrue(response.isTruncated(), "响应应被截断");
+            Assert.assertEquals((long) response.getBodyLength(), 1024L);
+        } finally {
+            HttpClientUtil.clearMaxCaptureBytes();
+        }
+        Assert.assertTrue(finished.await(30, TimeUnit.SECONDS), "服务端应因连接关闭而结束写入");
+        // 连接被丢弃后服务端写入失败；只允许套接字缓冲区量级的数据被发出
+        Assert.assertTrue(written.get() < LARGE_BODY / 4, "截断后仍下载了 " + written.get() + " 字节");
+
+        // 连接池可继续使用
+        ApiHttpResponse next = HttpClientUtil.sendRequestWithMeta(baseUrl + "/small", "GET", null, null);
+        Assert.assertEquals(next.getBody(), "ok");
+    }
+}
@@ -0,0 +1,116 @@
+package com.apitest.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimiter 令牌桶的放行节奏与等待中断
+ */
+public class RateLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void testBurstThenFixedInterval() {
+        // 每秒 10 个许可，突发 3
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(10, 3);
+        long now = 1_000_000 * MS;
+        Assert.assertEquals(bucket.reserve(now), 0);
+        Assert.assertEquals(bucket.reserve(now), 0);
+        Assert.assertEquals(bucket.reserve(now), 0);
+        Assert.assertEquals(bucket.reserve(now), 100 * MS);
+        Assert.assertEquals(bucket.reserve(now), 200 * MS);
+    }
+
+    @Test
+    public void testIdleBucketRefills() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(10, 2);
+        long now = 1_000_000 * MS;
+        bucket.reserve(now);
+        bucket.reserve(now);
+        Assert.assertEquals(bucket.reserve(now), 100 * MS);
+        // 空闲足够久后恢复突发容量，但不会超过 burst
+        long later = now + 10_000 * MS;
+        Assert.assertEquals(bucket.reserve(later), 0);
+        Assert.assertEquals(bucket.reserve(later), 0);
+        Assert.assertEquals(bucket.reserve(later), 100 * MS);
+    }
+
+    @Test
+    public void testConcurrentReservationsGetDistinctSlots() throws Exception {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(100, 1);
+        long now = 1_000_000 * MS;
+        int threads = 8;
+        int perThread = 50;
+        long[] waits = new long[threads * perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) waits[base + i] = bucket.reserve(now);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+        Arrays.sort(waits);
+        // 同一时刻的预约按 10ms 间隔依次排开，没有两个请求拿到同一个时间片
+        for (int i = 0; i < waits.length; i++) Assert.assertEquals(waits[i], i * 10 * MS);
+    }
+
+    @Test
+    public void testAwaitPacesCaller() throws Exception {
+        long start = System.nanoTime();
+        RateLimiter.await(TimeUnit.MILLISECONDS.toNanos(50), "test");
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testInterruptedWaitThrowsAndKeepsFlag() {
+        Thread.currentThread().interrupt();
+        long start = System.nanoTime();
+        try {
+            RateLimiter.await(TimeUnit.SECONDS.toNanos(5), "test");
+            Assert.fail("等待被中断时应抛出 InterruptedIOException");
+        } catch (InterruptedIOException expected) {
+            Assert.assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testInterruptDuringWait() throws Exception {
+        Thread main = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+                // 直接中断
+            }
+            main.interrupt();
+        });
+        interrupter.start();
+        try {
+            RateLimiter.await(TimeUnit.SECONDS.toNanos(5), "test");
+            Assert.fail("等待被中断时应抛出 InterruptedIOException");
+        } catch (InterruptedIOException expected) {
+            Assert.assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+            interrupter.join();
+        }
+    }
+}
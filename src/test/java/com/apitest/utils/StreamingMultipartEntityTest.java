@@ -0,0 +1,82 @@
+package com.apitest.utils;
+
+import org.apache.http.entity.ContentType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * StreamingMultipartEntity 写出内容、长度与 Content-Disposition 转义
+ */
+public class StreamingMultipartEntityTest {
+
+    private static byte[] written(StreamingMultipartEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] content(StreamingMultipartEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = entity.getContent()) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testWriteToMatchesContentAndLength() throws IOException {
+        File file = File.createTempFile("multipart-", ".bin");
+        try {
+            Files.write(file.toPath(), "file-body".getBytes(StandardCharsets.UTF_8));
+            StreamingMultipartEntity entity = new StreamingMultipartEntity()
+                    .addText("k", "值")
+                    .addFile("f", file, ContentType.APPLICATION_OCTET_STREAM)
+                    .addStream("g", "g.txt", StreamingMultipartEntity.generated(100_000), 100_000, ContentType.TEXT_PLAIN);
+            byte[] written = written(entity);
+            Assert.assertEquals(written, content(entity));
+            Assert.assertEquals(written.length, entity.getContentLength());
+            // 可重复写出
+            Assert.assertEquals(written(entity), written);
+            String text = new String(written, StandardCharsets.UTF_8);
+            Assert.assertTrue(text.contains("Content-Disposition: form-data; name=\"f\"; filename=\"" + file.getName() + "\"\r\n"), text);
+            Assert.assertTrue(text.endsWith("--\r\n"));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void testUnknownSizeIsChunked() {
+        StreamingMultipartEntity entity = new StreamingMultipartEntity()
+                .addStream("g", "g.txt", StreamingMultipartEntity.generated(10), -1, ContentType.TEXT_PLAIN);
+        Assert.assertEquals(entity.getContentLength(), -1L);
+        Assert.assertTrue(entity.isChunked());
+    }
+
+    @Test
+    public void testQuotesAreEscaped() throws IOException {
+        StreamingMultipartEntity entity = new StreamingMultipartEntity()
+                .addStream("a\"b", "x\\\"y.txt", StreamingMultipartEntity.generated(1), 1, null);
+        String text = new String(written(entity), StandardCharsets.UTF_8);
+        Assert.assertTrue(text.contains("Content-Disposition: form-data; name=\"a\\\"b\"; filename=\"x\\\\\\\"y.txt\"\r\n"), text);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLineBreakInFileNameIsRejected() {
+        new StreamingMultipartEntity().addStream("f", "a.txt\r\nX-Injected: 1", StreamingMultipartEntity.generated(1), 1, null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLineBreakInNameIsRejected() {
+        new StreamingMultipartEntity().addText("a\nb", "v");
+    }
+}
@@ -0,0 +1,134 @@
+package com.apitest.utils;
+
+import com.apitest.basetestcase.ApiHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * VcrCassette 录制后回放：响应内容还原、Body 归一化匹配与按录制顺序回放
+ */
+public class VcrCassetteTest {
+
+    private static final List<String> IGNORE = Collections.singletonList("timestamp");
+
+    private Path dir;
+    private String base;
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("vcr-");
+        base = dir.resolve("cassette").toString();
+    }
+
+    @AfterMethod
+    public void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) delete(p);
+        }
+        delete(dir);
+    }
+
+    /** 回放磁带仍被内存映射时（Windows）无法立即删除，退出时再删 */
+    private static void delete(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            p.toFile().deleteOnExit();
+        }
+    }
+
+    private static HttpPost post(String json) {
+        HttpPost post = new HttpPost("http://example.test/api/orders");
+        post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return post;
+    }
+
+    private static ApiHttpResponse response(int status, String body) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", Collections.singletonList("application/json; charset=UTF-8"));
+        headers.put("X-Trace", Arrays.asList("a", "b"));
+        Map<String, String> cookies = new LinkedHashMap<>();
+        cookies.put("sid", "s-" + status);
+        return new ApiHttpResponse(status, body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, false, headers, cookies);
+    }
+
+    @Test
+    public void testRecordThenReplay() throws IOException {
+        VcrCassette recorder = new VcrCassette(VcrCassette.Mode.RECORD, base, false, IGNORE);
+        recorder.record(post("{\"id\":1,\"name\":\"x\",\"timestamp\":100}"), response(201, "{\"seq\":1}"), 30);
+        recorder.record(post("{\"id\":1,\"name\":\"x\",\"timestamp\":200}"), response(409, "{\"seq\":2}"), 30);
+        recorder.record(new HttpGet("http://example.test/api/orders/1"), response(200, "中文"), 30);
+
+        VcrCassette player = new VcrCassette(VcrCassette.Mode.REPLAY, base, false, IGNORE);
+        // 键顺序不同、忽略字段取值不同的 Body 视为同一请求，按录制顺序回放，用尽后重复最后一次
+        HttpPost again = post("{\"timestamp\":999,\"name\":\"x\",\"id\":1}");
+        ApiHttpResponse first = player.replay(again);
+        Assert.assertEquals(first.getStatusCode(), 201);
+        Assert.assertEquals(first.getBody(), "{\"seq\":1}");
+        Assert.assertEquals(first.getHeaders().get("X-Trace"), Arrays.asList("a", "b"));
+        Assert.assertEquals(first.getCookies().get("sid"), "s-201");
+        Assert.assertEquals(player.replay(again).getStatusCode(), 409);
+        Assert.assertEquals(player.replay(again).getStatusCode(), 409);
+
+        ApiHttpResponse get = player.replay(new HttpGet("http://example.test/api/orders/1"));
+        Assert.assertEquals(get.getStatusCode(), 200);
+        Assert.assertEquals(get.getBody(), "中文");
+    }
+
+    @Test
+    public void testUnrecordedRequestFails() throws IOException {
+        new VcrCassette(VcrCassette.Mode.RECORD, base, false, IGNORE)
+                .record(post("{\"id\":1}"), response(200, "{}"), 0);
+        VcrCassette player = new VcrCassette(VcrCassette.Mode.REPLAY, base, false, IGNORE);
+        try {
+            player.replay(post("{\"id\":2}"));
+            Assert.fail("未录制的请求应报错");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("未找到录制"), expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testReplayLatency() throws IOException {
+        new VcrCassette(VcrCassette.Mode.RECORD, base, false, IGNORE)
+                .record(new HttpGet("http://example.test/slow"), response(200, "ok"), 80);
+        VcrCassette player = new VcrCassette(VcrCassette.Mode.REPLAY, base, true, IGNORE);
+        long start = System.nanoTime();
+        Assert.assertEquals(player.replay(new HttpGet("http://example.test/slow")).getBody(), "ok");
+        Assert.assertTrue(System.nanoTime() - start >= 80_000_000L);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testMissingCassetteFailsOnReplay() {
+        new VcrCassette(VcrCassette.Mode.REPLAY, base, false, IGNORE);
+    }
+
+    @Test
+    public void testParseMode() {
+        Assert.assertEquals(VcrCassette.parseMode("false"), VcrCassette.Mode.OFF);
+        Assert.assertEquals(VcrCassette.parseMode(" Replay "), VcrCassette.Mode.REPLAY);
+        try {
+            VcrCassette.parseMode("replya");
+            Assert.fail("无效取值应报错");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+}